@@ -0,0 +1,90 @@
+package android.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Plain-JVM stand-in for {@code android.util.JsonWriter}. Android's writer started out as a copy
+ * of Gson's, so this delegates to {@link com.google.gson.stream.JsonWriter}.
+ */
+public class JsonWriter implements Closeable {
+
+    private final com.google.gson.stream.JsonWriter delegate;
+
+    public JsonWriter(Writer out) {
+        delegate = new com.google.gson.stream.JsonWriter(out);
+    }
+
+    public void setIndent(String indent) {
+        delegate.setIndent(indent);
+    }
+
+    public void setLenient(boolean lenient) {
+        delegate.setLenient(lenient);
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        delegate.beginArray();
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        delegate.endArray();
+        return this;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        delegate.beginObject();
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        delegate.endObject();
+        return this;
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        delegate.name(name);
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        delegate.value(value);
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        delegate.nullValue();
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        delegate.value(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        delegate.value(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        delegate.value(value);
+        return this;
+    }
+
+    public JsonWriter value(Number value) throws IOException {
+        delegate.value(value);
+        return this;
+    }
+
+    public void flush() throws IOException {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
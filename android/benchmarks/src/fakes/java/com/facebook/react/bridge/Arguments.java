@@ -0,0 +1,16 @@
+package com.facebook.react.bridge;
+
+/**
+ * Plain-JVM stand-in for the React Native factory. On a device these are native-backed
+ * collections; here they are the in-memory {@link JavaOnlyMap} and {@link JavaOnlyArray}.
+ */
+public class Arguments {
+
+    public static WritableMap createMap() {
+        return new JavaOnlyMap();
+    }
+
+    public static WritableArray createArray() {
+        return new JavaOnlyArray();
+    }
+}
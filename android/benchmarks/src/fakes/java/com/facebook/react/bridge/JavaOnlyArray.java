@@ -0,0 +1,127 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory {@link WritableArray}, named after the React Native class with the same purpose.
+ */
+public class JavaOnlyArray implements WritableArray {
+
+    private final List<Object> backingList = new ArrayList<>();
+
+    @Override
+    public int size() {
+        return backingList.size();
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return backingList.get(index) == null;
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+        return (Boolean) backingList.get(index);
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return ((Number) backingList.get(index)).doubleValue();
+    }
+
+    @Override
+    public int getInt(int index) {
+        return ((Number) backingList.get(index)).intValue();
+    }
+
+    @Override
+    public String getString(int index) {
+        return (String) backingList.get(index);
+    }
+
+    @Override
+    public ReadableArray getArray(int index) {
+        return (ReadableArray) backingList.get(index);
+    }
+
+    @Override
+    public ReadableMap getMap(int index) {
+        return (ReadableMap) backingList.get(index);
+    }
+
+    @Override
+    public ReadableType getType(int index) {
+        return typeOf(backingList.get(index));
+    }
+
+    @Override
+    public ArrayList<Object> toArrayList() {
+        ArrayList<Object> list = new ArrayList<>(backingList.size());
+        for (Object value : backingList) {
+            list.add(toJava(value));
+        }
+        return list;
+    }
+
+    @Override
+    public void pushNull() {
+        backingList.add(null);
+    }
+
+    @Override
+    public void pushBoolean(boolean value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushDouble(double value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushInt(int value) {
+        backingList.add((double) value);
+    }
+
+    @Override
+    public void pushString(String value) {
+        backingList.add(value);
+    }
+
+    @Override
+    public void pushArray(ReadableArray array) {
+        backingList.add(array);
+    }
+
+    @Override
+    public void pushMap(ReadableMap map) {
+        backingList.add(map);
+    }
+
+    static ReadableType typeOf(Object value) {
+        if (value == null) {
+            return ReadableType.Null;
+        } else if (value instanceof Boolean) {
+            return ReadableType.Boolean;
+        } else if (value instanceof Number) {
+            return ReadableType.Number;
+        } else if (value instanceof String) {
+            return ReadableType.String;
+        } else if (value instanceof ReadableMap) {
+            return ReadableType.Map;
+        } else if (value instanceof ReadableArray) {
+            return ReadableType.Array;
+        }
+        throw new IllegalArgumentException("Not a bridge value: " + value.getClass());
+    }
+
+    static Object toJava(Object value) {
+        if (value instanceof ReadableMap) {
+            return ((ReadableMap) value).toHashMap();
+        } else if (value instanceof ReadableArray) {
+            return ((ReadableArray) value).toArrayList();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,11 @@
+package com.facebook.react.bridge;
+
+/**
+ * Plain-JVM stand-in for the React Native bridge type.
+ */
+public interface ReadableMapKeySetIterator {
+
+    boolean hasNextKey();
+
+    String nextKey();
+}
@@ -0,0 +1,93 @@
+package com.rnauth0guardian;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stored enrollment round trips and the key work behind allow/reject: parsing the stored
+ * private key, signing, and building the challenge-response JWT.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnrollmentBenchmark {
+
+    private GuardianEnrollment enrollment;
+    private String encoded;
+    private String legacyJson;
+    private byte[] privateKey;
+    private SigningKeyHolder signingKey;
+    private TransactionClient transactionClient;
+    private byte[] signingInput;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        PrivateKey key = generator.generateKeyPair().getPrivate();
+        privateKey = key.getEncoded();
+
+        enrollment = new GuardianEnrollment("dev_0123456789abcdef", "auth0|0123456789", 30, 6,
+                "sha1", "JBSWY3DPEHPK3PXP", "vHMgpdKYCXDXMjTEbpdLpcV5", "Pixel 3",
+                "fcm-token-0123456789", "device-token-0123456789", privateKey,
+                "tenant.guardian.auth0.com");
+        encoded = EnrollmentCodec.encodeToString(enrollment);
+        legacyJson = "{\"id\":\"dev_0123456789abcdef\",\"userId\":\"auth0|0123456789\",\"period\":30,"
+                + "\"digits\":6,\"algorithm\":\"sha1\",\"secret\":\"JBSWY3DPEHPK3PXP\","
+                + "\"deviceIdentifier\":\"vHMgpdKYCXDXMjTEbpdLpcV5\",\"deviceName\":\"Pixel 3\","
+                + "\"deviceGCMToken\":\"fcm-token-0123456789\",\"deviceToken\":\"device-token-0123456789\","
+                + "\"privateKey\":\"" + Base64.getEncoder().encodeToString(privateKey) + "\"}";
+
+        signingKey = new SigningKeyHolder(privateKey, key);
+        transactionClient = new TransactionClient("tenant.guardian.auth0.com", null, null);
+        signingInput = "eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9.eyJzdWIiOiJjaGFsbGVuZ2UifQ".getBytes();
+    }
+
+    @Benchmark
+    public String encode() {
+        return EnrollmentCodec.encodeToString(enrollment);
+    }
+
+    @Benchmark
+    public GuardianEnrollment decode() {
+        return EnrollmentCodec.decode(encoded);
+    }
+
+    @Benchmark
+    public GuardianEnrollment decodeLegacyJson() {
+        return EnrollmentCodec.decode(legacyJson);
+    }
+
+    @Benchmark
+    public PrivateKey parsePrivateKey() {
+        return new SigningKeyHolder(privateKey).getPrivateKey();
+    }
+
+    @Benchmark
+    public byte[] sign() throws GeneralSecurityException {
+        return signingKey.sign(signingInput);
+    }
+
+    @Benchmark
+    public String challengeResponse() throws Exception {
+        return transactionClient.createChallengeResponse(enrollment.getDeviceIdentifier(),
+                "aHR0cHM6Ly9leGFtcGxlLmNvbS9jaGFsbGVuZ2U", true, null, signingKey);
+    }
+}
@@ -0,0 +1,54 @@
+package com.rnauth0guardian;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-time code generation, with the engine reused as in the module and built from scratch as
+ * on the first call for an enrollment.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TotpBenchmark {
+
+    private static final String SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    private TotpEngine engine;
+    private long time;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        engine = new TotpEngine(SECRET, "sha1", 6, 30);
+        time = 1578391200000L;
+    }
+
+    @Benchmark
+    public String generate() {
+        return engine.generate(time);
+    }
+
+    @Benchmark
+    public TotpEngine.Window window() {
+        return engine.window(time);
+    }
+
+    @Benchmark
+    public String generateCold() throws GeneralSecurityException {
+        return new TotpEngine(SECRET, "sha1", 6, 30).generate(time);
+    }
+}
@@ -0,0 +1,33 @@
+package com.rnauth0guardian;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonUtilTest {
+
+    @Test
+    public void writesWholeNumbersWithoutAFraction() throws Exception {
+        JavaOnlyMap map = new JavaOnlyMap();
+        map.putDouble("whole", 42);
+        map.putDouble("fraction", 1.5);
+
+        assertEquals("{\"whole\":42,\"fraction\":1.5}", JsonUtil.toJSONString(map));
+    }
+
+    @Test
+    public void writesNonFiniteNumbersAsNull() throws Exception {
+        JavaOnlyMap map = new JavaOnlyMap();
+        map.putDouble("nan", Double.NaN);
+        JavaOnlyArray array = new JavaOnlyArray();
+        array.pushDouble(Double.POSITIVE_INFINITY);
+        array.pushDouble(Double.NEGATIVE_INFINITY);
+        array.pushDouble(1);
+        map.putArray("infinite", array);
+
+        assertEquals("{\"nan\":null,\"infinite\":[null,null,1]}", JsonUtil.toJSONString(map));
+    }
+}
@@ -0,0 +1,435 @@
+package com.rnauth0guardian;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import okio.ByteString;
+
+/**
+ * Durable queue for approve/deny decisions that could not be delivered because the network was
+ * down. Decisions are kept in an append-only log file, one JSON line per change, so they
+ * survive the app being killed. Several decisions for the same transaction collapse into the
+ * latest one.
+ * <p>
+ * Queued decisions are retried with exponential backoff and jitter until they are delivered,
+ * rejected by the server, or their transaction expires. All file access and retries happen on
+ * the outbox thread.
+ */
+public class DecisionOutbox {
+
+    private static final String TAG = DecisionOutbox.class.getName();
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String FILE_NAME = "rnauth0guardian-outbox.log";
+
+    private static final long BASE_DELAY_MS = 2000;
+    private static final long MAX_DELAY_MS = 60000;
+    // used when the transaction token does not say when it expires
+    private static final long DEFAULT_TTL_MS = 5 * 60 * 1000;
+    // rewrite the log once it holds this many superseded lines
+    private static final int COMPACT_THRESHOLD = 32;
+
+    public interface Sender {
+        /**
+         * Delivers a decision. Throwing an {@link IOException} means "try again later"; any other
+         * exception drops the decision.
+         */
+        void send(Decision decision) throws Exception;
+    }
+
+    public interface Listener {
+        void onDelivered(Decision decision);
+
+        void onDropped(Decision decision, String reason, Throwable error);
+    }
+
+    public static final class Decision {
+        public final GuardianNotification notification;
+        public final boolean accepted;
+        public final String reason;
+        public final long expiresAt;
+
+        // confined to the outbox thread
+        int attempts;
+        long nextAttemptAt;
+
+        Decision(GuardianNotification notification, boolean accepted, String reason, long expiresAt) {
+            this.notification = notification;
+            this.accepted = accepted;
+            this.reason = reason;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final File file;
+    private final Sender sender;
+    private final Listener listener;
+    private final Random random = new Random();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "RNAuth0Guardian-outbox");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // confined to the outbox thread
+    private final LinkedHashMap<String, Decision> pending = new LinkedHashMap<>();
+    private boolean loaded;
+    private int logLines;
+    // an append failed since the last flush
+    private boolean writeFailed;
+    private ScheduledFuture<?> scheduled;
+
+    private volatile int depth;
+
+    public DecisionOutbox(File filesDir, Sender sender, Listener listener) {
+        this.file = new File(filesDir, FILE_NAME);
+        this.sender = sender;
+        this.listener = listener;
+    }
+
+    /**
+     * Loads queued decisions from disk and retries the ones that are due.
+     */
+    public void start() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                schedule();
+            }
+        });
+    }
+
+    public void enqueue(final GuardianNotification notification, final boolean accepted, final String reason) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                Decision decision = new Decision(notification, accepted, reason, expiresAt(notification));
+                decision.nextAttemptAt = System.currentTimeMillis() + backoff(0);
+                pending.put(notification.getTransactionToken(), decision);
+                append(toLine(decision));
+                depth = pending.size();
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * Drops the queued decision for {@code transactionToken}, if any. Called once a decision for
+     * the transaction was delivered some other way, so a stale one is not replayed later.
+     */
+    public void cancel(final String transactionToken) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                remove(transactionToken);
+            }
+        });
+    }
+
+    /**
+     * Calls back on the outbox thread once every decision enqueued or cancelled before this
+     * call is in the log, so the process can end without losing it. Fails if one of them could
+     * not be written.
+     */
+    public void flush(final GuardianCallback<Void> callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                boolean failed = writeFailed;
+                writeFailed = false;
+                if (failed) {
+                    callback.onFailure(new IOException("Could not write outbox"));
+                } else {
+                    callback.onSuccess(null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Retries every queued decision now, e.g. when the app comes back to the foreground.
+     */
+    public void retryNow() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+                long now = System.currentTimeMillis();
+                for (Decision decision : pending.values()) {
+                    decision.nextAttemptAt = now;
+                }
+                schedule();
+            }
+        });
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private void schedule() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        long next = Long.MAX_VALUE;
+        for (Decision decision : pending.values()) {
+            next = Math.min(next, decision.nextAttemptAt);
+        }
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        long delay = Math.max(0, next - System.currentTimeMillis());
+        scheduled = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                scheduled = null;
+                deliverDue();
+                schedule();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deliverDue() {
+        List<Decision> due = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Decision decision : pending.values()) {
+            if (decision.nextAttemptAt <= now) {
+                due.add(decision);
+            }
+        }
+
+        for (Decision decision : due) {
+            String transactionToken = decision.notification.getTransactionToken();
+            if (System.currentTimeMillis() >= decision.expiresAt) {
+                remove(transactionToken);
+                notifyDropped(decision, "expired", null);
+                continue;
+            }
+            try {
+                sender.send(decision);
+            } catch (IOException e) {
+                decision.attempts++;
+                decision.nextAttemptAt = System.currentTimeMillis() + backoff(decision.attempts);
+                continue;
+            } catch (Exception e) {
+                remove(transactionToken);
+                notifyDropped(decision, "failed", e);
+                continue;
+            }
+            remove(transactionToken);
+            try {
+                listener.onDelivered(decision);
+            } catch (RuntimeException e) {
+                GuardianLog.e(TAG, "Error in outbox listener", e);
+            }
+        }
+    }
+
+    // a throwing listener, e.g. emitting after the React context is gone, must not end the retries
+    private void notifyDropped(Decision decision, String reason, Throwable error) {
+        try {
+            listener.onDropped(decision, reason, error);
+        } catch (RuntimeException e) {
+            GuardianLog.e(TAG, "Error in outbox listener", e);
+        }
+    }
+
+    private void remove(String transactionToken) {
+        if (pending.remove(transactionToken) == null) {
+            return;
+        }
+        JSONObject line = new JSONObject();
+        try {
+            line.put("op", "remove");
+            line.put("txtkn", transactionToken);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        append(line.toString());
+        depth = pending.size();
+    }
+
+    // exponential backoff with jitter: a random delay between half and all of the exponential step
+    private long backoff(int attempts) {
+        long step = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempts, 16));
+        return step / 2 + (long) (random.nextDouble() * (step / 2));
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logLines++;
+                try {
+                    replay(new JSONObject(line));
+                } catch (JSONException e) {
+                    // a torn write at the end of the log; everything before it is intact
+                    GuardianLog.w(TAG, "Skipping corrupt outbox entry");
+                }
+            }
+        } catch (IOException e) {
+            GuardianLog.e(TAG, "Error reading outbox", e);
+        } finally {
+            closeQuietly(reader);
+        }
+
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Decision>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Decision decision = iterator.next().getValue();
+            if (decision.expiresAt <= now) {
+                iterator.remove();
+            } else {
+                decision.nextAttemptAt = now;
+            }
+        }
+        depth = pending.size();
+        compactIfNeeded();
+    }
+
+    private void replay(JSONObject line) throws JSONException {
+        String transactionToken = line.getString("txtkn");
+        if ("remove".equals(line.getString("op"))) {
+            pending.remove(transactionToken);
+            return;
+        }
+        GuardianNotification notification = new GuardianNotification(transactionToken,
+                line.optString("dai", null), line.getString("c"), line.optString("sh", null),
+                line.optString("d", null));
+        pending.put(transactionToken, new Decision(notification, line.getBoolean("accept"),
+                line.optString("reason", null), line.getLong("exp")));
+    }
+
+    private String toLine(Decision decision) {
+        GuardianNotification notification = decision.notification;
+        JSONObject line = new JSONObject();
+        try {
+            line.put("op", "put");
+            line.put("txtkn", notification.getTransactionToken());
+            line.put("dai", notification.getEnrollmentId());
+            line.put("c", notification.getChallenge());
+            line.put("sh", notification.getHostname());
+            line.put("d", notification.getDate());
+            line.put("accept", decision.accepted);
+            line.put("reason", decision.reason);
+            line.put("exp", decision.expiresAt);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return line.toString();
+    }
+
+    private void append(String line) {
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+            logLines++;
+        } catch (IOException e) {
+            writeFailed = true;
+            GuardianLog.e(TAG, "Error writing outbox", e);
+        } finally {
+            closeQuietly(writer);
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (logLines - pending.size() < COMPACT_THRESHOLD) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(temp), UTF_8);
+            for (Decision decision : pending.values()) {
+                writer.write(toLine(decision));
+                writer.write('\n');
+            }
+            writer.flush();
+            writer.close();
+            writer = null;
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not replace outbox log");
+            }
+            logLines = pending.size();
+            // everything pending is on disk again
+            writeFailed = false;
+        } catch (IOException e) {
+            GuardianLog.e(TAG, "Error compacting outbox", e);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    /**
+     * The transaction token is a JWT; its {@code exp} claim says when the login request expires.
+     */
+    static long expiresAt(GuardianNotification notification) {
+        try {
+            String[] parts = notification.getTransactionToken().split("\\.");
+            if (parts.length == 3) {
+                // accepts the unpadded URL-safe alphabet JWTs use; null if not Base64 at all
+                ByteString payload = ByteString.decodeBase64(parts[1]);
+                long exp = payload != null ? new JSONObject(payload.string(UTF_8)).optLong("exp", 0) : 0;
+                if (exp > 0) {
+                    return exp * 1000L;
+                }
+            }
+        } catch (JSONException e) {
+            // not a JWT, fall back to the default lifetime
+        }
+        return System.currentTimeMillis() + DEFAULT_TTL_MS;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
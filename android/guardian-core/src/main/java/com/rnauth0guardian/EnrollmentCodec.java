@@ -0,0 +1,267 @@
+package com.rnauth0guardian;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import okio.ByteString;
+
+/**
+ * Hand-written binary encoding for stored enrollments.
+ * <p>
+ * A record starts with a format version byte, followed by the enrollment fields in a fixed
+ * order. Strings and byte arrays are prefixed with their length as a varint of
+ * {@code length + 1}, where 0 stands for {@code null}. The private key is stored as raw
+ * PKCS#8 bytes instead of Base64 text. Version 2 adds the tenant domain after the key;
+ * version 1 records are read with no domain.
+ * <p>
+ * Records written by earlier versions are Gson JSON. {@link #decode(String)} still reads
+ * them; they are rewritten in the binary format on the next write.
+ */
+public final class EnrollmentCodec {
+
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private EnrollmentCodec() {
+    }
+
+    public static boolean isLegacy(String stored) {
+        return stored.length() > 0 && stored.charAt(0) == '{';
+    }
+
+    /**
+     * Encodes an enrollment for storage in a string-valued preference.
+     */
+    public static String encodeToString(GuardianEnrollment enrollment) {
+        return ByteString.of(encode(enrollment)).base64();
+    }
+
+    public static GuardianEnrollment decode(String stored) {
+        long start = System.nanoTime();
+        try {
+            GuardianEnrollment enrollment = isLegacy(stored)
+                    ? LegacyJson.decode(stored)
+                    : decode(decodeBase64(stored));
+            GuardianMetrics.record(GuardianMetrics.PARSE, start);
+            return enrollment;
+        } catch (RuntimeException e) {
+            GuardianMetrics.record(GuardianMetrics.PARSE, start, e);
+            throw e;
+        }
+    }
+
+    private static byte[] decodeBase64(String encoded) {
+        ByteString decoded = ByteString.decodeBase64(encoded);
+        if (decoded == null) {
+            throw new IllegalArgumentException("Invalid Base64 in enrollment record");
+        }
+        return decoded.toByteArray();
+    }
+
+    public static byte[] encode(GuardianEnrollment enrollment) {
+        Writer out = new Writer(256 + enrollment.getPrivateKey().length);
+        out.writeByte(VERSION_2);
+        out.writeString(enrollment.getId());
+        out.writeString(enrollment.getUserId());
+        out.writeInteger(enrollment.getPeriod());
+        out.writeInteger(enrollment.getDigits());
+        out.writeString(enrollment.getAlgorithm());
+        out.writeString(enrollment.getSecret());
+        out.writeString(enrollment.getDeviceIdentifier());
+        out.writeString(enrollment.getDeviceName());
+        out.writeString(enrollment.getNotificationToken());
+        out.writeString(enrollment.getDeviceToken());
+        out.writeBytes(enrollment.getPrivateKey());
+        out.writeString(enrollment.getDomain());
+        return out.toByteArray();
+    }
+
+    public static GuardianEnrollment decode(byte[] data) {
+        Reader in = new Reader(data);
+        byte version = in.readByte();
+        if (version != VERSION_1 && version != VERSION_2) {
+            throw new IllegalArgumentException("Unsupported enrollment format version " + version);
+        }
+        return new GuardianEnrollment(
+                in.readString(),
+                in.readString(),
+                in.readInteger(),
+                in.readInteger(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readString(),
+                in.readBytes(),
+                version >= VERSION_2 ? in.readString() : null);
+    }
+
+    private static final class Writer {
+        private byte[] buffer;
+        private int position;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeInteger(Integer value) {
+            writeVarint(value == null ? 0 : value + 1);
+        }
+
+        void writeString(String value) {
+            writeBytes(value == null ? null : value.getBytes(UTF_8));
+        }
+
+        void writeBytes(byte[] value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(value.length + 1);
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        byte readByte() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated enrollment record");
+            }
+            return data[position++];
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed enrollment record");
+        }
+
+        Integer readInteger() {
+            int value = readVarint();
+            return value == 0 ? null : value - 1;
+        }
+
+        String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkRemaining(length);
+            String value = new String(data, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkRemaining(length);
+            byte[] value = Arrays.copyOfRange(data, position, position + length);
+            position += length;
+            return value;
+        }
+
+        private void checkRemaining(int length) {
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("Truncated enrollment record");
+            }
+        }
+    }
+
+    /**
+     * The JSON layout written by earlier versions through Gson. Only used to read old records,
+     * so Gson is not initialized unless one is found.
+     */
+    private static final class LegacyJson {
+
+        private static final Gson JSON = new GsonBuilder().create();
+
+        @SerializedName("id")
+        String id;
+
+        @SerializedName("userId")
+        String userId;
+
+        @SerializedName("period")
+        Integer period;
+
+        @SerializedName("digits")
+        Integer digits;
+
+        @SerializedName("algorithm")
+        String algorithm;
+
+        @SerializedName("secret")
+        String secret;
+
+        @SerializedName("deviceIdentifier")
+        String deviceIdentifier;
+
+        @SerializedName("deviceName")
+        String deviceName;
+
+        @SerializedName("deviceGCMToken")
+        String deviceGCMToken;
+
+        @SerializedName("deviceToken")
+        String deviceToken;
+
+        @SerializedName("privateKey")
+        String privateKey;
+
+        static GuardianEnrollment decode(String json) {
+            LegacyJson legacy = JSON.fromJson(json, LegacyJson.class);
+            return new GuardianEnrollment(legacy.id, legacy.userId, legacy.period, legacy.digits,
+                    legacy.algorithm, legacy.secret, legacy.deviceIdentifier, legacy.deviceName,
+                    legacy.deviceGCMToken, legacy.deviceToken,
+                    decodeBase64(legacy.privateKey), null);
+        }
+    }
+}
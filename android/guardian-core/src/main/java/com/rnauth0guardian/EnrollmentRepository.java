@@ -0,0 +1,565 @@
+package com.rnauth0guardian;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Owns the persisted enrollments, kept in an {@link EnrollmentStore}. The stored index is read
+ * once, on the storage thread, into an immutable in-memory {@link Snapshot}; readers only ever
+ * see the snapshot and never touch the disk. Until that load is done they see only the changes
+ * made since, which are then applied on top of what was stored. {@link #load} calls back once
+ * the stored enrollments are in.
+ * Each enrollment is kept as its stored string and only deserialized the first time it is
+ * looked up, so a device with many enrollments does not decode all of them at startup.
+ * <p>
+ * Changes are published to the snapshot immediately and written behind on a single storage
+ * thread, in order. Back-to-back changes are collapsed into one write of the latest snapshot.
+ */
+public class EnrollmentRepository {
+
+    private static final String TAG = EnrollmentRepository.class.getName();
+
+    // single enrollment written by earlier versions, migrated on first load
+    private static final String LEGACY_ENROLLMENT = "ENROLLMENT";
+    private static final String ENROLLMENT_INDEX = "ENROLLMENT_INDEX";
+    private static final String ENROLLMENT_PREFIX = "ENROLLMENT:";
+
+    private final EnrollmentStore store;
+    // must run one task at a time, in order
+    private final Executor storageExecutor;
+
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean loaded;
+
+    // guarded by lock
+    private boolean loadScheduled;
+    // made before the load, replayed over the stored enrollments
+    private final List<Change> changesBeforeLoad = new ArrayList<>();
+    private long requestedVersion;
+    private long writtenVersion;
+    private boolean writeScheduled;
+    private final List<FlushRequest> flushRequests = new ArrayList<>();
+
+    // storage thread only
+    private volatile Snapshot lastWritten;
+
+    public EnrollmentRepository(EnrollmentStore store, Executor storageExecutor) {
+        this.store = store;
+        this.storageExecutor = storageExecutor;
+    }
+
+    /**
+     * Loads the stored enrollment index on the storage thread, if that has not happened yet.
+     * The callback receives the number of enrollments, on the storage thread.
+     */
+    public void load(final GuardianCallback<Integer> callback) {
+        storageExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loadIfNeeded();
+                    callback.onSuccess(snapshot.size());
+                } catch (Exception e) {
+                    callback.onFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether the stored enrollments have been read. Lookups made before only see enrollments
+     * saved since.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * The most recently enrolled account, used by the single-enrollment API.
+     */
+    public GuardianEnrollment getPrimary() {
+        return decode(snapshot().primary);
+    }
+
+    public GuardianEnrollment getById(String enrollmentId) {
+        return decode(snapshot().byId.get(enrollmentId));
+    }
+
+    /**
+     * The enrollment of {@code userId}, or {@code null}.
+     *
+     * @throws IllegalStateException if the user is enrolled with more than one tenant; use
+     *                               {@link #getAllByUserId} then
+     */
+    public GuardianEnrollment getByUserId(String userId) {
+        return decode(single(snapshot().byUserId.get(userId)));
+    }
+
+    /**
+     * Every enrollment of {@code userId}, one per tenant it is enrolled with, oldest first.
+     */
+    public List<Record> getAllByUserId(String userId) {
+        return orEmpty(snapshot().byUserId.get(userId));
+    }
+
+    /**
+     * The enrollment made from {@code deviceIdentifier}, or {@code null}.
+     *
+     * @throws IllegalStateException if the device is enrolled with more than one tenant; use
+     *                               {@link #getAllByDeviceIdentifier} then
+     */
+    public GuardianEnrollment getByDeviceIdentifier(String deviceIdentifier) {
+        return decode(single(snapshot().byDeviceIdentifier.get(deviceIdentifier)));
+    }
+
+    /**
+     * Every enrollment made from {@code deviceIdentifier}, oldest first.
+     */
+    public List<Record> getAllByDeviceIdentifier(String deviceIdentifier) {
+        return orEmpty(snapshot().byDeviceIdentifier.get(deviceIdentifier));
+    }
+
+    /**
+     * Every stored enrollment record, oldest first. Records expose the indexed fields without
+     * deserializing the enrollment.
+     */
+    public Collection<Record> getAll() {
+        return snapshot().byId.values();
+    }
+
+    public void save(GuardianEnrollment enrollment) {
+        synchronized (lock) {
+            Snapshot current = snapshot();
+            Record previous = current.byId.get(enrollment.getId());
+            if (previous != null && previous.enrollment != null) {
+                previous.enrollment.invalidateSigningKey();
+            }
+            Record record = Record.of(enrollment);
+            if (!loaded) {
+                changesBeforeLoad.add(new Change(record, null));
+            }
+            publish(current.with(record));
+        }
+    }
+
+    public void remove(String enrollmentId) {
+        synchronized (lock) {
+            Snapshot current = snapshot();
+            if (!loaded) {
+                // it may only be on disk yet
+                changesBeforeLoad.add(new Change(null, enrollmentId));
+                publish(current.without(enrollmentId));
+                return;
+            }
+            Record previous = current.byId.get(enrollmentId);
+            if (previous == null) {
+                return;
+            }
+            if (previous.enrollment != null) {
+                previous.enrollment.invalidateSigningKey();
+            }
+            publish(current.without(enrollmentId));
+        }
+    }
+
+    /**
+     * Calls back once every change made before this call has been written to disk.
+     */
+    public void flush(GuardianCallback<Void> callback) {
+        synchronized (lock) {
+            if (writtenVersion >= requestedVersion) {
+                callback.onSuccess(null);
+                return;
+            }
+            flushRequests.add(new FlushRequest(requestedVersion, callback));
+            if (writeScheduled) {
+                return;
+            }
+            // an earlier write failed, try again
+            writeScheduled = true;
+        }
+        scheduleWrite();
+    }
+
+    private Snapshot snapshot() {
+        if (!loaded) {
+            scheduleLoad();
+        }
+        return snapshot;
+    }
+
+    private void scheduleLoad() {
+        synchronized (lock) {
+            if (loaded || loadScheduled) {
+                return;
+            }
+            loadScheduled = true;
+            // queued under the lock, so ahead of any write the caller goes on to schedule
+            storageExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        loadIfNeeded();
+                    } catch (RuntimeException e) {
+                        GuardianLog.e(TAG, "Error loading enrollments", e);
+                        synchronized (lock) {
+                            loadScheduled = false;
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    // storage thread only
+    private void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        Snapshot stored = read();
+        synchronized (lock) {
+            Snapshot merged = stored;
+            for (Change change : changesBeforeLoad) {
+                merged = change.applyTo(merged);
+            }
+            changesBeforeLoad.clear();
+            snapshot = merged;
+            loaded = true;
+            // legacy records were read; write them back in the current format
+            if (lastWritten == null && stored.size() > 0) {
+                requestedVersion++;
+                if (!writeScheduled) {
+                    writeScheduled = true;
+                    scheduleWrite();
+                }
+            }
+        }
+    }
+
+    // called with lock held
+    private void publish(Snapshot next) {
+        snapshot = next;
+        requestedVersion++;
+        if (writeScheduled) {
+            // the pending write picks up the latest snapshot
+            return;
+        }
+        writeScheduled = true;
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        storageExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeLatest();
+            }
+        });
+    }
+
+    private void writeLatest() {
+        Exception error = null;
+        try {
+            // a write must never replace what is stored with only the changes made since
+            loadIfNeeded();
+        } catch (RuntimeException e) {
+            error = e;
+        }
+
+        Snapshot toWrite;
+        long version;
+        synchronized (lock) {
+            toWrite = snapshot;
+            version = requestedVersion;
+            writeScheduled = false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (error != null) {
+                throw error;
+            }
+            Snapshot previous = lastWritten != null ? lastWritten : Snapshot.EMPTY;
+            Map<String, String> changes = new HashMap<>();
+            for (Record record : toWrite.byId.values()) {
+                if (previous.byId.get(record.id) != record) {
+                    changes.put(ENROLLMENT_PREFIX + record.id, record.encodeForWrite());
+                }
+            }
+            for (String id : previous.byId.keySet()) {
+                if (!toWrite.byId.containsKey(id)) {
+                    changes.put(ENROLLMENT_PREFIX + id, null);
+                }
+            }
+            changes.put(ENROLLMENT_INDEX, toWrite.encodeIndex());
+            changes.put(LEGACY_ENROLLMENT, null);
+            if (store.commit(changes)) {
+                lastWritten = toWrite;
+            } else {
+                error = new IllegalStateException("Could not persist enrollments");
+            }
+        } catch (Exception e) {
+            error = e;
+        }
+        GuardianMetrics.record(GuardianMetrics.PERSIST, start, error);
+        if (error != null) {
+            GuardianLog.e(TAG, "Error persisting enrollments", error);
+        }
+
+        List<FlushRequest> completed = new ArrayList<>();
+        synchronized (lock) {
+            if (error == null) {
+                writtenVersion = Math.max(writtenVersion, version);
+            }
+            Iterator<FlushRequest> iterator = flushRequests.iterator();
+            while (iterator.hasNext()) {
+                FlushRequest request = iterator.next();
+                if (error != null || request.version <= writtenVersion) {
+                    completed.add(request);
+                    iterator.remove();
+                }
+            }
+        }
+        for (FlushRequest request : completed) {
+            if (error == null) {
+                request.callback.onSuccess(null);
+            } else {
+                request.callback.onFailure(error);
+            }
+        }
+    }
+
+    private Snapshot read() {
+        String index = store.get(ENROLLMENT_INDEX);
+        if (index != null) {
+            try {
+                Snapshot stored = Snapshot.decodeIndex(index, store, ENROLLMENT_PREFIX);
+                // leave lastWritten unset if the next write must upgrade every record
+                if (!stored.hasLegacyRecords()) {
+                    lastWritten = stored;
+                }
+                return stored;
+            } catch (JSONException e) {
+                GuardianLog.e(TAG, "Invalid enrollment index", e);
+                return Snapshot.EMPTY;
+            }
+        }
+
+        String legacy = store.get(LEGACY_ENROLLMENT);
+        if (legacy == null || legacy.isEmpty()) {
+            return Snapshot.EMPTY;
+        }
+        // the legacy record is decoded once to build its index entry, then rewritten
+        GuardianEnrollment enrollment;
+        try {
+            enrollment = EnrollmentCodec.decode(legacy);
+        } catch (RuntimeException e) {
+            // treated as absent; throwing here would leave the snapshot unset and fail every lookup
+            GuardianLog.e(TAG, "Invalid legacy enrollment", e);
+            return Snapshot.EMPTY;
+        }
+        return Snapshot.EMPTY.with(Record.of(enrollment));
+    }
+
+    private static GuardianEnrollment decode(Record record) {
+        return record != null ? record.get() : null;
+    }
+
+    private static Record single(List<Record> records) {
+        if (records == null) {
+            return null;
+        }
+        if (records.size() > 1) {
+            throw new IllegalStateException("AMBIGUOUS_ENROLLMENT");
+        }
+        return records.get(0);
+    }
+
+    private static List<Record> orEmpty(List<Record> records) {
+        return records != null ? records : Collections.<Record>emptyList();
+    }
+
+    /**
+     * A stored enrollment. The indexed fields are always available; the enrollment itself is
+     * decoded from {@link #encoded} on first use.
+     */
+    public static final class Record {
+        public final String id;
+        public final String userId;
+        public final String deviceIdentifier;
+        final String encoded;
+        private volatile GuardianEnrollment enrollment;
+
+        private Record(String id, String userId, String deviceIdentifier, String encoded,
+                       GuardianEnrollment enrollment) {
+            this.id = id;
+            this.userId = userId;
+            this.deviceIdentifier = deviceIdentifier;
+            this.encoded = encoded;
+            this.enrollment = enrollment;
+        }
+
+        static Record of(GuardianEnrollment enrollment) {
+            return new Record(enrollment.getId(), enrollment.getUserId(),
+                    enrollment.getDeviceIdentifier(), EnrollmentCodec.encodeToString(enrollment),
+                    enrollment);
+        }
+
+        String encodeForWrite() {
+            // records still in the legacy JSON format are upgraded when written
+            if (!EnrollmentCodec.isLegacy(encoded)) {
+                return encoded;
+            }
+            try {
+                return EnrollmentCodec.encodeToString(get());
+            } catch (RuntimeException e) {
+                // kept as stored rather than failing every write; lookups report the error
+                GuardianLog.e(TAG, "Invalid enrollment {}", id, e);
+                return encoded;
+            }
+        }
+
+        public GuardianEnrollment get() {
+            GuardianEnrollment decoded = enrollment;
+            if (decoded == null) {
+                synchronized (this) {
+                    decoded = enrollment;
+                    if (decoded == null) {
+                        decoded = EnrollmentCodec.decode(encoded);
+                        enrollment = decoded;
+                    }
+                }
+            }
+            return decoded;
+        }
+    }
+
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new LinkedHashMap<String, Record>());
+
+        final Map<String, Record> byId;
+        // the same user or device can be enrolled with several tenants
+        final Map<String, List<Record>> byUserId;
+        final Map<String, List<Record>> byDeviceIdentifier;
+        final Record primary;
+
+        private Snapshot(LinkedHashMap<String, Record> records) {
+            Map<String, List<Record>> byUserId = new HashMap<>();
+            Map<String, List<Record>> byDeviceIdentifier = new HashMap<>();
+            Record last = null;
+            for (Record record : records.values()) {
+                index(byUserId, record.userId, record);
+                index(byDeviceIdentifier, record.deviceIdentifier, record);
+                last = record;
+            }
+            this.byId = Collections.unmodifiableMap(records);
+            this.byUserId = Collections.unmodifiableMap(byUserId);
+            this.byDeviceIdentifier = Collections.unmodifiableMap(byDeviceIdentifier);
+            this.primary = last;
+        }
+
+        private static void index(Map<String, List<Record>> index, String key, Record record) {
+            List<Record> records = index.get(key);
+            if (records == null) {
+                index.put(key, Collections.singletonList(record));
+                return;
+            }
+            List<Record> more = new ArrayList<>(records);
+            more.add(record);
+            index.put(key, Collections.unmodifiableList(more));
+        }
+
+        int size() {
+            return byId.size();
+        }
+
+        boolean hasLegacyRecords() {
+            for (Record record : byId.values()) {
+                if (EnrollmentCodec.isLegacy(record.encoded)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Snapshot with(Record record) {
+            LinkedHashMap<String, Record> records = new LinkedHashMap<>(byId);
+            // re-insert so the newest enrollment becomes the primary one
+            records.remove(record.id);
+            records.put(record.id, record);
+            return new Snapshot(records);
+        }
+
+        Snapshot without(String enrollmentId) {
+            LinkedHashMap<String, Record> records = new LinkedHashMap<>(byId);
+            records.remove(enrollmentId);
+            return new Snapshot(records);
+        }
+
+        String encodeIndex() {
+            JSONArray index = new JSONArray();
+            for (Record record : byId.values()) {
+                JSONArray entry = new JSONArray();
+                entry.put(record.id);
+                entry.put(record.userId);
+                entry.put(record.deviceIdentifier);
+                index.put(entry);
+            }
+            return index.toString();
+        }
+
+        static Snapshot decodeIndex(String index, EnrollmentStore store, String prefix)
+                throws JSONException {
+            JSONArray entries = new JSONArray(index);
+            LinkedHashMap<String, Record> records = new LinkedHashMap<>();
+            for (int i = 0; i < entries.length(); i++) {
+                JSONArray entry = entries.getJSONArray(i);
+                String id = entry.getString(0);
+                String encoded = store.get(prefix + id);
+                if (encoded == null) {
+                    continue;
+                }
+                records.put(id, new Record(id, entry.getString(1), entry.getString(2), encoded, null));
+            }
+            return new Snapshot(records);
+        }
+    }
+
+    /**
+     * A save or a removal made before the load.
+     */
+    private static final class Change {
+        final Record saved;
+        final String removedId;
+
+        Change(Record saved, String removedId) {
+            this.saved = saved;
+            this.removedId = removedId;
+        }
+
+        Snapshot applyTo(Snapshot snapshot) {
+            return saved != null ? snapshot.with(saved) : snapshot.without(removedId);
+        }
+    }
+
+    private static final class FlushRequest {
+        final long version;
+        final GuardianCallback<Void> callback;
+
+        FlushRequest(long version, GuardianCallback<Void> callback) {
+            this.version = version;
+            this.callback = callback;
+        }
+    }
+}
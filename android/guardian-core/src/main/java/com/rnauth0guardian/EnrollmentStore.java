@@ -0,0 +1,21 @@
+package com.rnauth0guardian;
+
+import java.util.Map;
+
+/**
+ * String key-value storage behind {@link EnrollmentRepository}, e.g. shared preferences on
+ * Android.
+ */
+public interface EnrollmentStore {
+
+    /**
+     * Returns the stored value, or {@code null} if there is none.
+     */
+    String get(String key);
+
+    /**
+     * Writes every change in one go; a {@code null} value removes its key. Returns
+     * {@code false} if the changes could not be persisted.
+     */
+    boolean commit(Map<String, String> changes);
+}
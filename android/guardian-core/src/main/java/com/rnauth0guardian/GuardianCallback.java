@@ -0,0 +1,12 @@
+package com.rnauth0guardian;
+
+/**
+ * Result of an asynchronous operation. Same shape as the Guardian SDK's callback, so the
+ * platform adapters can bridge one to the other.
+ */
+public interface GuardianCallback<T> {
+
+    void onSuccess(T response);
+
+    void onFailure(Throwable exception);
+}
@@ -0,0 +1,164 @@
+package com.rnauth0guardian;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+
+/**
+ * A device enrollment as stored by the library. The signing key and the TOTP engine are built
+ * once per enrollment, on first use.
+ */
+public class GuardianEnrollment {
+
+    private final String id;
+
+    private final String userId;
+
+    private final Integer period;
+
+    private final Integer digits;
+
+    private final String algorithm;
+
+    private final String secret;
+
+    private final String deviceIdentifier;
+
+    private final String deviceName;
+
+    private final String deviceGCMToken;
+
+    private final String deviceToken;
+
+    // raw PKCS#8 bytes
+    private final byte[] privateKey;
+
+    // tenant the device enrolled with; null for enrollments stored by earlier versions
+    private final String domain;
+
+    // parsed once per enrollment
+    private SigningKeyHolder signingKeyHolder;
+    private TotpEngine totpEngine;
+
+    public GuardianEnrollment(String id, String userId, Integer period, Integer digits, String algorithm,
+                              String secret, String deviceIdentifier, String deviceName,
+                              String deviceGCMToken, String deviceToken, byte[] privateKey, String domain) {
+        this(id, userId, period, digits, algorithm, secret, deviceIdentifier, deviceName, deviceGCMToken,
+                deviceToken, privateKey, domain, null);
+    }
+
+    /**
+     * @param signingKeyHolder the parsed signing key if the caller already has it, else {@code null}
+     */
+    protected GuardianEnrollment(String id, String userId, Integer period, Integer digits, String algorithm,
+                                 String secret, String deviceIdentifier, String deviceName,
+                                 String deviceGCMToken, String deviceToken, byte[] privateKey, String domain,
+                                 SigningKeyHolder signingKeyHolder) {
+        this.id = id;
+        this.userId = userId;
+        this.period = period;
+        this.digits = digits;
+        this.algorithm = algorithm;
+        this.secret = secret;
+        this.deviceIdentifier = deviceIdentifier;
+        this.deviceName = deviceName;
+        this.deviceGCMToken = deviceGCMToken;
+        this.deviceToken = deviceToken;
+        this.privateKey = privateKey;
+        this.domain = domain;
+        this.signingKeyHolder = signingKeyHolder;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Integer getPeriod() {
+        return period;
+    }
+
+    public Integer getDigits() {
+        return digits;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public String getDeviceIdentifier() {
+        return deviceIdentifier;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public String getNotificationToken() {
+        return deviceGCMToken;
+    }
+
+    public String getDeviceToken() {
+        return deviceToken;
+    }
+
+    public PrivateKey getSigningKey() {
+        return getSigningKeyHolder().getPrivateKey();
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    byte[] getPrivateKey() {
+        return privateKey;
+    }
+
+    public synchronized SigningKeyHolder getSigningKeyHolder() {
+        if (signingKeyHolder == null) {
+            signingKeyHolder = new SigningKeyHolder(privateKey);
+        }
+        return signingKeyHolder;
+    }
+
+    public synchronized TotpEngine getTotpEngine() throws GeneralSecurityException {
+        if (totpEngine == null) {
+            totpEngine = TotpEngine.forEnrollment(this);
+        }
+        return totpEngine;
+    }
+
+    public synchronized void invalidateSigningKey() {
+        if (signingKeyHolder != null) {
+            signingKeyHolder.invalidate();
+        }
+    }
+
+    /**
+     * Identifies the enrollment without its credentials: the TOTP secret, the device token, the
+     * push token and the private key are never included. Final so that subclasses, such as the
+     * Parcelable one handed to the SDK, cannot print them either.
+     */
+    @Override
+    public final String toString() {
+        return "GuardianEnrollment{id=" + id
+                + ", userId=" + userId
+                + ", deviceIdentifier=" + deviceIdentifier
+                + ", domain=" + domain
+                + ", secret=" + redact(secret)
+                + ", deviceToken=" + redact(deviceToken)
+                + ", notificationToken=" + redact(deviceGCMToken)
+                + ", privateKey=" + (privateKey != null ? "<redacted>" : "null")
+                + "}";
+    }
+
+    static String redact(String value) {
+        return value != null ? "<redacted>" : "null";
+    }
+}
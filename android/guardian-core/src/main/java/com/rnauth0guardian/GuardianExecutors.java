@@ -0,0 +1,187 @@
+package com.rnauth0guardian;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The module's thread model. Nothing heavy runs on the React Native native modules queue:
+ * <ul>
+ * <li>{@link #cpu()} - a small pool for crypto, i.e. key generation</li>
+ * <li>{@link #storage()} - one thread, so stored enrollments are written in order</li>
+ * <li>{@link #network()} - a bounded pool for requests, which also sign their JWTs</li>
+ * <li>{@link #callbacks()} - where results are handed back to JS, supplied by the module</li>
+ * </ul>
+ * Pool threads are created on demand and exit after a short idle period. Each pool records how
+ * long tasks waited in its queue.
+ */
+public class GuardianExecutors {
+
+    static final int DEFAULT_CPU_THREADS = 2;
+    static final int DEFAULT_NETWORK_THREADS = 4;
+
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    private final InstrumentedExecutor cpu = new InstrumentedExecutor("cpu", DEFAULT_CPU_THREADS);
+    private final InstrumentedExecutor storage = new InstrumentedExecutor("storage", 1);
+    private final InstrumentedExecutor network = new InstrumentedExecutor("network", DEFAULT_NETWORK_THREADS);
+    private final Executor callbacks;
+
+    public GuardianExecutors(Executor callbacks) {
+        this.callbacks = callbacks;
+    }
+
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    public ExecutorService storage() {
+        return storage;
+    }
+
+    public ExecutorService network() {
+        return network;
+    }
+
+    public Executor callbacks() {
+        return callbacks;
+    }
+
+    public void setCpuThreads(int threads) {
+        cpu.setThreads(threads);
+    }
+
+    public void setNetworkThreads(int threads) {
+        network.setThreads(threads);
+    }
+
+    public Stats cpuStats() {
+        return cpu.stats();
+    }
+
+    public Stats storageStats() {
+        return storage.stats();
+    }
+
+    public Stats networkStats() {
+        return network.stats();
+    }
+
+    /**
+     * Wraps {@code callback} so that it is called on {@link #callbacks()} instead of the thread
+     * that produced the result.
+     */
+    public <T> GuardianCallback<T> deliver(final GuardianCallback<T> callback) {
+        return new GuardianCallback<T>() {
+            @Override
+            public void onSuccess(final T response) {
+                callbacks.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSuccess(response);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final Throwable exception) {
+                callbacks.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onFailure(exception);
+                    }
+                });
+            }
+        };
+    }
+
+    public static final class Stats {
+        public final int threads;
+        public final int active;
+        public final int queued;
+        public final long completed;
+        public final double averageWaitMs;
+        public final double maxWaitMs;
+
+        Stats(int threads, int active, int queued, long completed, double averageWaitMs, double maxWaitMs) {
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.completed = completed;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+    }
+
+    /**
+     * A fixed-size pool with an unbounded queue that measures each task's time in the queue.
+     */
+    private static final class InstrumentedExecutor extends ThreadPoolExecutor {
+
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        InstrumentedExecutor(final String name, int threads) {
+            super(threads, threads, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "RNAuth0Guardian-" + name + "-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            final long queuedAt = System.nanoTime();
+            super.execute(new Runnable() {
+                @Override
+                public void run() {
+                    recordWait(System.nanoTime() - queuedAt);
+                    command.run();
+                }
+            });
+        }
+
+        synchronized void setThreads(int threads) {
+            threads = Math.max(1, threads);
+            // core may never exceed max, so grow max first and shrink it last
+            if (threads > getMaximumPoolSize()) {
+                setMaximumPoolSize(threads);
+                setCorePoolSize(threads);
+            } else {
+                setCorePoolSize(threads);
+                setMaximumPoolSize(threads);
+            }
+        }
+
+        Stats stats() {
+            long count = started.get();
+            double averageWaitMs = count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1e6;
+            return new Stats(getMaximumPoolSize(), getActiveCount(), getQueue().size(),
+                    getCompletedTaskCount(), averageWaitMs, maxWaitNanos.get() / 1e6);
+        }
+
+        private void recordWait(long waitNanos) {
+            started.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            long max;
+            while (waitNanos > (max = maxWaitNanos.get())) {
+                if (maxWaitNanos.compareAndSet(max, waitNanos)) {
+                    break;
+                }
+            }
+        }
+    }
+}
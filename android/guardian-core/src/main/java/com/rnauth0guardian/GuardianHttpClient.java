@@ -0,0 +1,117 @@
+package com.rnauth0guardian;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The HTTP client shared by every Guardian request the module sends itself. One connection pool
+ * keeps TLS connections to the tenant alive between requests, and HTTP/2 is negotiated where the
+ * server and platform support it.
+ * <p>
+ * {@link #prewarm(String, Callback)} opens a connection ahead of time so that the DNS lookup and
+ * TLS handshake are already done when the user answers a push.
+ */
+public class GuardianHttpClient {
+
+    private static final String TAG = GuardianHttpClient.class.getName();
+
+    static final int DEFAULT_TIMEOUT_MS = 10000;
+    static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    static final long DEFAULT_KEEP_ALIVE_MS = 5 * 60 * 1000;
+
+    /**
+     * Called on a thread of the network pool.
+     */
+    public interface Callback {
+        void onReady(boolean success);
+    }
+
+    // asynchronous calls run here instead of on OkHttp's own unbounded pool
+    private final Dispatcher dispatcher;
+    // built on first use; setting up TLS is not free and many app launches never need it
+    private volatile OkHttpClient client;
+
+    // guarded by this
+    private int timeoutMs = DEFAULT_TIMEOUT_MS;
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private long keepAliveMs = DEFAULT_KEEP_ALIVE_MS;
+
+    public GuardianHttpClient(ExecutorService executor) {
+        dispatcher = new Dispatcher(executor);
+    }
+
+    public OkHttpClient get() {
+        OkHttpClient current = client;
+        if (current == null) {
+            synchronized (this) {
+                current = client;
+                if (current == null) {
+                    current = build(timeoutMs, maxIdleConnections, keepAliveMs);
+                    client = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the client with one using the given settings. Requests already in flight finish on
+     * the old client; its idle connections are closed.
+     */
+    public synchronized void configure(int timeoutMs, int maxIdleConnections, long keepAliveMs) {
+        this.timeoutMs = timeoutMs;
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAliveMs = keepAliveMs;
+        OkHttpClient previous = client;
+        if (previous != null) {
+            client = build(timeoutMs, maxIdleConnections, keepAliveMs);
+            previous.connectionPool().evictAll();
+        }
+    }
+
+    /**
+     * Resolves the host and opens a connection to {@code baseUrl}, leaving it in the pool for the
+     * next request. A HEAD request is the cheapest call that makes OkHttp connect and pool; its
+     * status does not matter.
+     */
+    public void prewarm(String baseUrl, final Callback callback) {
+        Request request = new Request.Builder()
+                .url(baseUrl)
+                .head()
+                .build();
+        get().newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                callback.onReady(true);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                GuardianLog.i(TAG, "Prewarm failed: {}", e);
+                callback.onReady(false);
+            }
+        });
+    }
+
+    private OkHttpClient build(int timeoutMs, int maxIdleConnections, long keepAliveMs) {
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.rnauth0guardian;
+
+/**
+ * Logging for the library, which the core classes use instead of {@code android.util.Log}.
+ * Messages go to the installed {@link Sink}; with none installed they are dropped. Priorities
+ * use the same values as {@code android.util.Log}.
+ * <p>
+ * Messages below {@link #setLevel the level} cost one field read. Arguments are substituted for
+ * {@code {}} in the message only once a message is going to be written, so call sites pass
+ * values rather than concatenating strings, and {@code toString()} is never called on them
+ * otherwise. The fixed-arity overloads avoid the array a varargs call would allocate. Release
+ * builds that shrink with R8 or ProGuard drop verbose and debug calls entirely, see
+ * {@code android/proguard-rules.pro}.
+ * <p>
+ * Enrollments and notifications redact their secrets in {@code toString()}, so they can be
+ * passed as arguments.
+ */
+public final class GuardianLog {
+
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    // as a level, logs nothing
+    public static final int NONE = Integer.MAX_VALUE;
+
+    public static final int DEFAULT_LEVEL = INFO;
+
+    public interface Sink {
+        void println(int priority, String tag, String message, Throwable error);
+    }
+
+    private static volatile Sink sink;
+    private static volatile int level = DEFAULT_LEVEL;
+
+    private GuardianLog() {
+    }
+
+    public static void setSink(Sink sink) {
+        GuardianLog.sink = sink;
+    }
+
+    /**
+     * Messages with a lower priority than {@code level} are dropped; {@link #NONE} turns
+     * logging off.
+     */
+    public static void setLevel(int level) {
+        GuardianLog.level = level;
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    /**
+     * Whether a message with {@code priority} would be written. Check it before doing work that
+     * only a log message needs.
+     */
+    public static boolean isLoggable(int priority) {
+        return priority >= level && sink != null;
+    }
+
+    public static void v(String tag, String message) {
+        if (VERBOSE >= level) {
+            println(VERBOSE, tag, message, null, null, null);
+        }
+    }
+
+    public static void v(String tag, String message, Object arg) {
+        if (VERBOSE >= level) {
+            println(VERBOSE, tag, message, arg, null, null);
+        }
+    }
+
+    public static void d(String tag, String message) {
+        if (DEBUG >= level) {
+            println(DEBUG, tag, message, null, null, null);
+        }
+    }
+
+    public static void d(String tag, String message, Object arg) {
+        if (DEBUG >= level) {
+            println(DEBUG, tag, message, arg, null, null);
+        }
+    }
+
+    public static void d(String tag, String message, Object arg1, Object arg2) {
+        if (DEBUG >= level) {
+            println(DEBUG, tag, message, arg1, arg2, null);
+        }
+    }
+
+    public static void i(String tag, String message) {
+        if (INFO >= level) {
+            println(INFO, tag, message, null, null, null);
+        }
+    }
+
+    public static void i(String tag, String message, Object arg) {
+        if (INFO >= level) {
+            println(INFO, tag, message, arg, null, null);
+        }
+    }
+
+    public static void i(String tag, String message, Object arg1, Object arg2) {
+        if (INFO >= level) {
+            println(INFO, tag, message, arg1, arg2, null);
+        }
+    }
+
+    public static void w(String tag, String message) {
+        if (WARN >= level) {
+            println(WARN, tag, message, null, null, null);
+        }
+    }
+
+    public static void w(String tag, String message, Object arg) {
+        if (WARN >= level) {
+            println(WARN, tag, message, arg, null, null);
+        }
+    }
+
+    public static void w(String tag, String message, Throwable error) {
+        if (WARN >= level) {
+            println(WARN, tag, message, null, null, error);
+        }
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        if (ERROR >= level) {
+            println(ERROR, tag, message, null, null, error);
+        }
+    }
+
+    public static void e(String tag, String message, Object arg, Throwable error) {
+        if (ERROR >= level) {
+            println(ERROR, tag, message, arg, null, error);
+        }
+    }
+
+    private static void println(int priority, String tag, String message, Object arg1, Object arg2,
+                                Throwable error) {
+        Sink current = sink;
+        if (current != null) {
+            current.println(priority, tag, format(message, arg1, arg2), error);
+        }
+    }
+
+    // replaces the first two {} in message with the arguments
+    static String format(String message, Object arg1, Object arg2) {
+        int first = message.indexOf("{}");
+        if (first < 0) {
+            return message;
+        }
+        StringBuilder formatted = new StringBuilder(message.length() + 32);
+        formatted.append(message, 0, first).append(arg1);
+        int second = message.indexOf("{}", first + 2);
+        if (second < 0) {
+            return formatted.append(message, first + 2, message.length()).toString();
+        }
+        return formatted
+                .append(message, first + 2, second)
+                .append(arg2)
+                .append(message, second + 2, message.length())
+                .toString();
+    }
+}
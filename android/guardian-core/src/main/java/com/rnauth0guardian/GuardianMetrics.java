@@ -0,0 +1,217 @@
+package com.rnauth0guardian;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide latency histograms and outcome counts for the library's operations and the
+ * phases inside them. Histograms have fixed buckets held in primitive arrays, so recording does
+ * not allocate and can stay on the hot paths; only {@link #snapshot()} builds objects.
+ * <p>
+ * Operations are timed from the call until their result is ready, before it is handed back.
+ * Phases are timed where the work happens and are shared by every operation that does it,
+ * including decisions sent from notification actions and by the outbox.
+ */
+public final class GuardianMetrics {
+
+    public static final int ENROLL = 0;
+    public static final int ALLOW = 1;
+    public static final int REJECT = 2;
+    public static final int TOTP = 3;
+    public static final int UNENROLL = 4;
+    // decoding a push payload or a stored enrollment
+    public static final int PARSE = 5;
+    // parsing an enrollment's private key, or taking a key pair for enroll
+    public static final int KEY_LOAD = 6;
+    // building and signing a challenge response
+    public static final int SIGN = 7;
+    public static final int NETWORK = 8;
+    // writing enrollments to the store
+    public static final int PERSIST = 9;
+
+    static final String[] METRIC_NAMES = {
+            "enroll", "allow", "reject", "totp", "unenroll", "parse", "keyLoad", "sign", "network", "persist"
+    };
+
+    public static final int OK = 0;
+    // no connection, timeout or dropped connection
+    public static final int NETWORK_ERROR = 1;
+    // the Guardian API answered 4xx, e.g. the transaction expired
+    public static final int CLIENT_ERROR = 2;
+    // the Guardian API answered 5xx
+    public static final int SERVER_ERROR = 3;
+    public static final int NOT_ENROLLED = 4;
+    // not initialized, or another enroll/unenroll was running
+    public static final int INVALID_STATE = 5;
+    public static final int OTHER_ERROR = 6;
+
+    static final String[] OUTCOME_NAMES = {
+            "ok", "network", "clientError", "serverError", "notEnrolled", "invalidState", "other"
+    };
+
+    /**
+     * Upper bounds of the histogram buckets, in microseconds. A last bucket holds anything
+     * slower.
+     */
+    static final long[] BUCKET_BOUNDS_MICROS = {
+            50, 100, 250, 500,
+            1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000,
+            1000000, 2500000, 5000000, 10000000
+    };
+
+    private static final int METRICS = METRIC_NAMES.length;
+    private static final int OUTCOMES = OUTCOME_NAMES.length;
+    private static final int BUCKETS = BUCKET_BOUNDS_MICROS.length + 1;
+
+    private static final AtomicLongArray buckets = new AtomicLongArray(METRICS * BUCKETS);
+    private static final AtomicLongArray outcomes = new AtomicLongArray(METRICS * OUTCOMES);
+    private static final AtomicLongArray totalNanos = new AtomicLongArray(METRICS);
+    private static final AtomicLongArray maxNanos = new AtomicLongArray(METRICS);
+
+    private GuardianMetrics() {
+    }
+
+    /**
+     * Records a successful {@code metric} that started at {@code startNanos}, a
+     * {@link System#nanoTime()} value, and ended now.
+     */
+    public static void record(int metric, long startNanos) {
+        record(metric, startNanos, OK);
+    }
+
+    /**
+     * Records {@code metric} with the outcome of {@code error}, which is {@code null} if it
+     * succeeded.
+     */
+    public static void record(int metric, long startNanos, Throwable error) {
+        record(metric, startNanos, outcomeOf(error));
+    }
+
+    public static void record(int metric, long startNanos, int outcome) {
+        long elapsed = Math.max(0, System.nanoTime() - startNanos);
+        long micros = elapsed / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(metric * BUCKETS + bucket);
+        outcomes.incrementAndGet(metric * OUTCOMES + outcome);
+        totalNanos.addAndGet(metric, elapsed);
+        long max = maxNanos.get(metric);
+        while (elapsed > max && !maxNanos.compareAndSet(metric, max, elapsed)) {
+            max = maxNanos.get(metric);
+        }
+    }
+
+    public static int outcomeOf(Throwable error) {
+        if (error == null) {
+            return OK;
+        }
+        if (error instanceof TransactionException) {
+            return ((TransactionException) error).getStatusCode() >= 500 ? SERVER_ERROR : CLIENT_ERROR;
+        }
+        if (error instanceof IllegalStateException) {
+            if ("DEVICE_NOT_ENROLLED".equals(error.getMessage())) {
+                return NOT_ENROLLED;
+            }
+            if ("NOT_INITIALIZED".equals(error.getMessage())) {
+                return INVALID_STATE;
+            }
+        }
+        // the Guardian SDK wraps the network errors of enroll and unenroll
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return NETWORK_ERROR;
+            }
+        }
+        return OTHER_ERROR;
+    }
+
+    /**
+     * Clears every histogram and counter. Operations still running are recorded afterwards.
+     */
+    public static void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        for (int i = 0; i < outcomes.length(); i++) {
+            outcomes.set(i, 0);
+        }
+        for (int i = 0; i < METRICS; i++) {
+            totalNanos.set(i, 0);
+            maxNanos.set(i, 0);
+        }
+    }
+
+    /**
+     * A copy of every metric, in the order of the metric constants. Counters are read one at a
+     * time, so a snapshot taken while operations complete may be off by those operations.
+     */
+    public static Snapshot[] snapshot() {
+        Snapshot[] snapshots = new Snapshot[METRICS];
+        for (int metric = 0; metric < METRICS; metric++) {
+            long[] bucketCounts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                bucketCounts[i] = buckets.get(metric * BUCKETS + i);
+                count += bucketCounts[i];
+            }
+            long[] outcomeCounts = new long[OUTCOMES];
+            for (int i = 0; i < OUTCOMES; i++) {
+                outcomeCounts[i] = outcomes.get(metric * OUTCOMES + i);
+            }
+            snapshots[metric] = new Snapshot(METRIC_NAMES[metric], count, totalNanos.get(metric),
+                    maxNanos.get(metric), bucketCounts, outcomeCounts);
+        }
+        return snapshots;
+    }
+
+    public static long[] getBucketBoundsMicros() {
+        return BUCKET_BOUNDS_MICROS.clone();
+    }
+
+    public static String[] getOutcomeNames() {
+        return OUTCOME_NAMES.clone();
+    }
+
+    public static final class Snapshot {
+        public final String name;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        // per bucket of getBucketBoundsMicros, plus one for anything slower
+        public final long[] buckets;
+        // per outcome constant
+        public final long[] outcomes;
+
+        Snapshot(String name, long count, long totalNanos, long maxNanos, long[] buckets, long[] outcomes) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+            this.outcomes = outcomes;
+        }
+
+        /**
+         * Estimates a percentile as the upper bound of the bucket it falls in, capped at the
+         * slowest recorded value. Returns 0 if nothing was recorded.
+         */
+        public double percentileMs(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    long maxMicros = maxNanos / 1000;
+                    long bound = i < BUCKET_BOUNDS_MICROS.length ? BUCKET_BOUNDS_MICROS[i] : maxMicros;
+                    return Math.min(bound, maxMicros) / 1000.0;
+                }
+            }
+            return maxNanos / 1e6;
+        }
+    }
+}
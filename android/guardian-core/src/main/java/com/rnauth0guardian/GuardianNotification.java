@@ -0,0 +1,54 @@
+package com.rnauth0guardian;
+
+/**
+ * The fields of a Guardian push notification needed to resolve its transaction. The transaction
+ * token and challenge are always present; the others may be {@code null} in older payloads.
+ */
+public final class GuardianNotification {
+
+    private final String transactionToken;
+    private final String enrollmentId;
+    private final String challenge;
+    private final String hostname;
+    private final String date;
+
+    public GuardianNotification(String transactionToken, String enrollmentId, String challenge,
+                                String hostname, String date) {
+        this.transactionToken = transactionToken;
+        this.enrollmentId = enrollmentId;
+        this.challenge = challenge;
+        this.hostname = hostname;
+        this.date = date;
+    }
+
+    public String getTransactionToken() {
+        return transactionToken;
+    }
+
+    public String getEnrollmentId() {
+        return enrollmentId;
+    }
+
+    public String getChallenge() {
+        return challenge;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    // the transaction token authorizes resolving the transaction, and is left out with the challenge
+    @Override
+    public String toString() {
+        return "GuardianNotification{enrollmentId=" + enrollmentId
+                + ", hostname=" + hostname
+                + ", date=" + date
+                + ", transactionToken=" + GuardianEnrollment.redact(transactionToken)
+                + ", challenge=" + GuardianEnrollment.redact(challenge)
+                + "}";
+    }
+}
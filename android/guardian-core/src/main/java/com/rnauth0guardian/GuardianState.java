@@ -0,0 +1,110 @@
+package com.rnauth0guardian;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lifecycle of the module, published as an immutable {@link State} through an atomic reference.
+ * Readers call {@link #get()} and see a consistent state without locking.
+ * <p>
+ * Every change is a compare-and-set from an expected state. Only one enroll or unenroll can be in
+ * flight: a second one finds the state no longer settled and is refused instead of interleaving
+ * with the first. The enrollments themselves live in {@link EnrollmentRepository}; this only
+ * tracks what the module is doing with them.
+ */
+public class GuardianState {
+
+    public enum Status {
+        UNINITIALIZED,
+        LOADING,
+        NOT_ENROLLED,
+        ENROLLED,
+        ENROLLING,
+        UNENROLLING
+    }
+
+    public static final class State {
+        public final Status status;
+        // the enrollment being removed while UNENROLLING
+        public final String enrollmentId;
+
+        State(Status status, String enrollmentId) {
+            this.status = status;
+            this.enrollmentId = enrollmentId;
+        }
+
+        public boolean isSettled() {
+            return status == Status.NOT_ENROLLED || status == Status.ENROLLED;
+        }
+
+        @Override
+        public String toString() {
+            return enrollmentId != null ? status + " " + enrollmentId : status.toString();
+        }
+    }
+
+    private static final State UNINITIALIZED = new State(Status.UNINITIALIZED, null);
+    private static final State LOADING = new State(Status.LOADING, null);
+    private static final State NOT_ENROLLED = new State(Status.NOT_ENROLLED, null);
+    private static final State ENROLLED = new State(Status.ENROLLED, null);
+
+    private final AtomicReference<State> state = new AtomicReference<>(UNINITIALIZED);
+
+    public State get() {
+        return state.get();
+    }
+
+    /**
+     * Moves from UNINITIALIZED to LOADING. Returns {@code false} if another caller already
+     * started loading.
+     */
+    public boolean beginLoading() {
+        return state.compareAndSet(UNINITIALIZED, LOADING);
+    }
+
+    public void finishLoading(boolean enrolled) {
+        state.compareAndSet(LOADING, settled(enrolled));
+    }
+
+    public void failLoading() {
+        state.compareAndSet(LOADING, UNINITIALIZED);
+    }
+
+    /**
+     * Moves from a settled state to ENROLLING. Returns the new state, which the caller hands to
+     * {@link #settle}, or {@code null} if the module is not initialized or busy.
+     */
+    public State beginEnroll() {
+        return begin(new State(Status.ENROLLING, null), false);
+    }
+
+    /**
+     * Moves from ENROLLED to UNENROLLING. Returns the new state, which the caller hands to
+     * {@link #settle}, or {@code null} if the module is not initialized or busy.
+     */
+    public State beginUnenroll(String enrollmentId) {
+        return begin(new State(Status.UNENROLLING, enrollmentId), true);
+    }
+
+    /**
+     * Ends the operation that moved the module to {@code operation}.
+     */
+    public void settle(State operation, boolean enrolled) {
+        state.compareAndSet(operation, settled(enrolled));
+    }
+
+    private State begin(State next, boolean requireEnrolled) {
+        while (true) {
+            State current = state.get();
+            if (!current.isSettled() || (requireEnrolled && current.status != Status.ENROLLED)) {
+                return null;
+            }
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static State settled(boolean enrolled) {
+        return enrolled ? ENROLLED : NOT_ENROLLED;
+    }
+}
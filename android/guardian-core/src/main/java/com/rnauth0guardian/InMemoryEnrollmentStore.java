@@ -0,0 +1,30 @@
+package com.rnauth0guardian;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link EnrollmentStore} that keeps nothing across restarts. For use on a plain JVM, e.g.
+ * in benchmarks and load tests.
+ */
+public class InMemoryEnrollmentStore implements EnrollmentStore {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    @Override
+    public synchronized String get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public synchronized boolean commit(Map<String, String> changes) {
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                values.remove(change.getKey());
+            } else {
+                values.put(change.getKey(), change.getValue());
+            }
+        }
+        return true;
+    }
+}
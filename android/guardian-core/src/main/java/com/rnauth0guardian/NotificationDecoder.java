@@ -0,0 +1,70 @@
+package com.rnauth0guardian;
+
+import java.util.Map;
+
+/**
+ * Reads a Guardian push payload, e.g. the bridge map from JS or the FCM data map when no JS is
+ * running. Only the keys Guardian needs are looked up; everything else in the payload is never
+ * touched.
+ */
+public final class NotificationDecoder {
+
+    // payload keys, same as the Guardian SDK
+    static final String TRANSACTION_TOKEN = "txtkn";
+    static final String ENROLLMENT_ID = "dai";
+    static final String CHALLENGE = "c";
+    static final String HOSTNAME = "sh";
+    static final String DATE = "d";
+
+    /**
+     * A push payload in whatever form the platform delivers it.
+     */
+    public interface Payload {
+        /**
+         * Returns the string value of {@code key}, or {@code null} if it is missing or not a string.
+         */
+        String getString(String key);
+    }
+
+    private NotificationDecoder() {
+    }
+
+    public static GuardianNotification decode(Payload data) {
+        long start = System.nanoTime();
+        try {
+            GuardianNotification notification = create(data.getString(TRANSACTION_TOKEN),
+                    data.getString(ENROLLMENT_ID), data.getString(CHALLENGE), data.getString(HOSTNAME),
+                    data.getString(DATE));
+            GuardianMetrics.record(GuardianMetrics.PARSE, start);
+            return notification;
+        } catch (RuntimeException e) {
+            GuardianMetrics.record(GuardianMetrics.PARSE, start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the data of an FCM {@code RemoteMessage}, e.g. in a native messaging service.
+     */
+    public static GuardianNotification decode(Map<String, String> data) {
+        long start = System.nanoTime();
+        try {
+            GuardianNotification notification = create(data.get(TRANSACTION_TOKEN),
+                    data.get(ENROLLMENT_ID), data.get(CHALLENGE), data.get(HOSTNAME), data.get(DATE));
+            GuardianMetrics.record(GuardianMetrics.PARSE, start);
+            return notification;
+        } catch (RuntimeException e) {
+            GuardianMetrics.record(GuardianMetrics.PARSE, start, e);
+            throw e;
+        }
+    }
+
+    private static GuardianNotification create(String transactionToken, String enrollmentId,
+                                               String challenge, String hostname, String date) {
+        if (transactionToken == null || challenge == null) {
+            throw new IllegalArgumentException("Invalid Guardian notification: missing "
+                    + (transactionToken == null ? TRANSACTION_TOKEN : CHALLENGE));
+        }
+        return new GuardianNotification(transactionToken, enrollmentId, challenge, hostname, date);
+    }
+}
@@ -0,0 +1,83 @@
+package com.rnauth0guardian;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+
+/**
+ * Parses an enrollment's PKCS#8 signing key once and hands out per-thread {@link Signature}
+ * instances that are already initialized for signing, so approving a push does not repeat
+ * the key parsing and signer setup on every call.
+ */
+public class SigningKeyHolder {
+
+    static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+
+    private final byte[] encodedKey;
+    private volatile PrivateKey privateKey;
+    private volatile ThreadLocal<Signature> signatures = new ThreadLocal<>();
+
+    public SigningKeyHolder(byte[] encodedKey) {
+        this(encodedKey, null);
+    }
+
+    public SigningKeyHolder(byte[] encodedKey, PrivateKey privateKey) {
+        this.encodedKey = encodedKey;
+        this.privateKey = privateKey;
+    }
+
+    public PrivateKey getPrivateKey() {
+        PrivateKey key = privateKey;
+        if (key == null) {
+            long start = System.nanoTime();
+            try {
+                key = parse(encodedKey);
+            } catch (RuntimeException e) {
+                GuardianMetrics.record(GuardianMetrics.KEY_LOAD, start, e);
+                throw e;
+            }
+            GuardianMetrics.record(GuardianMetrics.KEY_LOAD, start);
+            privateKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * Signs {@code data} with a signer confined to the calling thread. {@link Signature#sign()}
+     * resets the signer to its initialized state, so the instance is reused by the next call.
+     */
+    public byte[] sign(byte[] data) throws GeneralSecurityException {
+        ThreadLocal<Signature> local = signatures;
+        Signature signature = local.get();
+        if (signature == null) {
+            signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signature.initSign(getPrivateKey());
+            local.set(signature);
+        }
+        signature.update(data);
+        return signature.sign();
+    }
+
+    /**
+     * Drops the parsed key and every cached signer. Called when the enrollment is replaced or
+     * removed; a later use parses the key again.
+     */
+    public void invalidate() {
+        privateKey = null;
+        signatures = new ThreadLocal<>();
+    }
+
+    private static PrivateKey parse(byte[] encodedKey) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(encodedKey);
+            return keyFactory.generatePrivate(keySpec);
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException("Invalid private key!");
+        }
+    }
+}
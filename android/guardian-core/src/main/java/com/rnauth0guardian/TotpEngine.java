@@ -0,0 +1,169 @@
+package com.rnauth0guardian;
+
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * TOTP (RFC 6238) for one enrollment. The Base32 secret is decoded once and the {@link Mac}
+ * is initialized once, then reused for every code.
+ */
+public class TotpEngine {
+
+    static final int DEFAULT_DIGITS = 6;
+    static final int DEFAULT_PERIOD = 30;
+    static final String DEFAULT_ALGORITHM = "sha1";
+
+    private static final int[] POWERS_OF_TEN = {
+            1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000
+    };
+
+    private final Mac mac;
+    private final int digits;
+    private final int period;
+
+    public TotpEngine(String secret, String algorithm, Integer digits, Integer period)
+            throws GeneralSecurityException {
+        this.digits = digits != null ? digits : DEFAULT_DIGITS;
+        this.period = period != null ? period : DEFAULT_PERIOD;
+        if (this.digits < 1 || this.digits >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported number of digits: " + this.digits);
+        }
+        if (this.period < 1) {
+            throw new IllegalArgumentException("Invalid period: " + this.period);
+        }
+        String macAlgorithm = macAlgorithm(algorithm != null ? algorithm : DEFAULT_ALGORITHM);
+        this.mac = Mac.getInstance(macAlgorithm);
+        this.mac.init(new SecretKeySpec(Base32.decode(secret), macAlgorithm));
+    }
+
+    public static TotpEngine forEnrollment(GuardianEnrollment enrollment) throws GeneralSecurityException {
+        return new TotpEngine(enrollment.getSecret(), enrollment.getAlgorithm(),
+                enrollment.getDigits(), enrollment.getPeriod());
+    }
+
+    public int getPeriod() {
+        return period;
+    }
+
+    public String generate(long timeMillis) {
+        return code(counter(timeMillis));
+    }
+
+    /**
+     * Codes for the previous, current and next period at {@code timeMillis}.
+     */
+    public Window window(long timeMillis) {
+        long counter = counter(timeMillis);
+        long expiresAt = (counter + 1) * period * 1000L;
+        return new Window(code(counter - 1), code(counter), code(counter + 1), period, expiresAt,
+                (int) ((expiresAt - timeMillis + 999) / 1000));
+    }
+
+    private long counter(long timeMillis) {
+        return (timeMillis / 1000L) / period;
+    }
+
+    private String code(long counter) {
+        byte[] hash;
+        synchronized (mac) {
+            hash = mac.doFinal(new byte[]{
+                    (byte) (counter >>> 56), (byte) (counter >>> 48), (byte) (counter >>> 40),
+                    (byte) (counter >>> 32), (byte) (counter >>> 24), (byte) (counter >>> 16),
+                    (byte) (counter >>> 8), (byte) counter
+            });
+        }
+
+        // dynamic truncation, RFC 4226 section 5.3
+        int offset = hash[hash.length - 1] & 0x0F;
+        int binary = ((hash[offset] & 0x7F) << 24)
+                | ((hash[offset + 1] & 0xFF) << 16)
+                | ((hash[offset + 2] & 0xFF) << 8)
+                | (hash[offset + 3] & 0xFF);
+        int otp = binary % POWERS_OF_TEN[digits];
+
+        char[] chars = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + otp % 10);
+            otp /= 10;
+        }
+        return new String(chars);
+    }
+
+    private static String macAlgorithm(String algorithm) {
+        switch (algorithm.toLowerCase(Locale.US)) {
+            case "sha1":
+                return "HmacSHA1";
+            case "sha256":
+                return "HmacSHA256";
+            case "sha512":
+                return "HmacSHA512";
+            default:
+                throw new IllegalArgumentException("Unsupported TOTP algorithm: " + algorithm);
+        }
+    }
+
+    public static final class Window {
+        public final String previous;
+        public final String current;
+        public final String next;
+        public final int period;
+        public final long expiresAt;
+        public final int remainingSeconds;
+
+        Window(String previous, String current, String next, int period, long expiresAt,
+               int remainingSeconds) {
+            this.previous = previous;
+            this.current = current;
+            this.next = next;
+            this.period = period;
+            this.expiresAt = expiresAt;
+            this.remainingSeconds = remainingSeconds;
+        }
+    }
+
+    /**
+     * RFC 4648 Base32 decoding, as used for TOTP secrets. Padding, spaces and case are ignored.
+     */
+    static final class Base32 {
+
+        private Base32() {
+        }
+
+        static byte[] decode(String encoded) {
+            byte[] out = new byte[encoded.length() * 5 / 8];
+            int buffer = 0;
+            int bits = 0;
+            int length = 0;
+            for (int i = 0; i < encoded.length(); i++) {
+                char c = encoded.charAt(i);
+                int value;
+                if (c >= 'A' && c <= 'Z') {
+                    value = c - 'A';
+                } else if (c >= 'a' && c <= 'z') {
+                    value = c - 'a';
+                } else if (c >= '2' && c <= '7') {
+                    value = c - '2' + 26;
+                } else if (c == '=' || c == ' ' || c == '-') {
+                    continue;
+                } else {
+                    throw new IllegalArgumentException("Invalid Base32 character: " + c);
+                }
+                buffer = (buffer << 5) | value;
+                bits += 5;
+                if (bits >= 8) {
+                    out[length++] = (byte) (buffer >> (bits - 8));
+                    bits -= 8;
+                }
+            }
+            if (length == out.length) {
+                return out;
+            }
+            byte[] trimmed = new byte[length];
+            System.arraycopy(out, 0, trimmed, 0, length);
+            return trimmed;
+        }
+    }
+}
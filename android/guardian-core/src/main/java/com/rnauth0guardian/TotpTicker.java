@@ -0,0 +1,192 @@
+package com.rnauth0guardian;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits fresh TOTP codes at each subscribed enrollment's period boundary, so JS does not have
+ * to poll for rollover. All subscriptions share one timer, which only runs while at least one
+ * enrollment is subscribed and the app is in the foreground. A subscription for an enrollment
+ * that is not stored stays quiet until {@link #enrollmentsChanged()} finds it.
+ * <p>
+ * All state is confined to the ticker thread; public methods only post work to it.
+ */
+public class TotpTicker {
+
+    private static final String TAG = TotpTicker.class.getName();
+
+    // fire slightly after the boundary so the new period has started for sure
+    private static final long BOUNDARY_SLACK_MS = 5;
+
+    public interface Listener {
+        void onTick(String enrollmentId, TotpEngine.Window window);
+    }
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "RNAuth0Guardian-totp");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    // confined to the scheduler thread
+    // Long.MAX_VALUE parks a subscription whose enrollment is missing or unusable
+    private final Map<String, Long> nextTicks = new HashMap<>();
+    private boolean foreground = true;
+    private ScheduledFuture<?> pending;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            pending = null;
+            emitDue(false);
+            reschedule();
+        }
+    };
+
+    public TotpTicker(EnrollmentRepository enrollmentRepository, Listener listener) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.listener = listener;
+    }
+
+    public void subscribe(final String enrollmentId) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                nextTicks.put(enrollmentId, 0L);
+                if (isActive()) {
+                    emitDue(false);
+                }
+                reschedule();
+            }
+        });
+    }
+
+    public void unsubscribe(final String enrollmentId) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                nextTicks.remove(enrollmentId);
+                reschedule();
+            }
+        });
+    }
+
+    /**
+     * Call after enrollments were saved or removed, so parked subscriptions whose enrollment now
+     * exists start ticking.
+     */
+    public void enrollmentsChanged() {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                boolean parked = false;
+                for (Map.Entry<String, Long> entry : nextTicks.entrySet()) {
+                    if (entry.getValue() == Long.MAX_VALUE) {
+                        entry.setValue(0L);
+                        parked = true;
+                    }
+                }
+                if (parked && isActive()) {
+                    emitDue(false);
+                }
+                reschedule();
+            }
+        });
+    }
+
+    public void setForeground(final boolean inForeground) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                boolean wasActive = isActive();
+                foreground = inForeground;
+                resume(wasActive);
+            }
+        });
+    }
+
+    public void shutdown() {
+        synchronized (scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // calls may still arrive while the module is torn down, e.g. removeListeners; they are dropped
+    private void post(Runnable task) {
+        synchronized (scheduler) {
+            if (!scheduler.isShutdown()) {
+                scheduler.execute(task);
+            }
+        }
+    }
+
+    private boolean isActive() {
+        return foreground && !nextTicks.isEmpty();
+    }
+
+    private void resume(boolean wasActive) {
+        if (!wasActive && isActive()) {
+            // codes may have rolled over while nobody was listening
+            emitDue(true);
+        }
+        reschedule();
+    }
+
+    private void emitDue(boolean all) {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Long> entry : nextTicks.entrySet()) {
+            if (!all && entry.getValue() > now) {
+                continue;
+            }
+            String enrollmentId = entry.getKey();
+            try {
+                GuardianEnrollment enrollment = enrollmentRepository.getById(enrollmentId);
+                if (enrollment == null) {
+                    // unenrolled; keep the subscription quiet until it is removed
+                    entry.setValue(Long.MAX_VALUE);
+                    continue;
+                }
+                TotpEngine.Window window = enrollment.getTotpEngine().window(now);
+                entry.setValue(window.expiresAt);
+                listener.onTick(enrollmentId, window);
+            } catch (Exception e) {
+                GuardianLog.e(TAG, "Error generating TOTP for {}", enrollmentId, e);
+                entry.setValue(Long.MAX_VALUE);
+            }
+        }
+    }
+
+    private void reschedule() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        if (!isActive()) {
+            return;
+        }
+        long next = Long.MAX_VALUE;
+        for (Long nextTick : nextTicks.values()) {
+            next = Math.min(next, nextTick);
+        }
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        long delay = Math.max(0, next - System.currentTimeMillis()) + BOUNDARY_SLACK_MS;
+        try {
+            pending = scheduler.schedule(tick, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shut down while this task ran
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.rnauth0guardian;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs several resolve-transaction requests concurrently, with at most {@code parallelism} in
+ * flight at a time, and reports one outcome per request in input order.
+ * <p>
+ * Items run in the background and report back through a callback, so one that waits on a
+ * request already in flight for the same transaction holds no thread. Each completion starts
+ * the next item, which keeps the cap without a semaphore.
+ */
+public class TransactionBatch {
+
+    static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * One request of the batch, see {@link TransactionResolver#prepareItem}.
+     */
+    public interface Item {
+        void start(GuardianCallback<Void> callback);
+    }
+
+    /**
+     * Outcome of one item. {@code error} is {@code null} when the request succeeded.
+     */
+    public static final class Result {
+        public final Throwable error;
+
+        Result(Throwable error) {
+            this.error = error;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private final List<Item> items;
+    private final Result[] results;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicInteger remaining;
+
+    private Executor executor;
+    private GuardianCallback<Result[]> callback;
+
+    /**
+     * @param items the requests to run; a {@code null} entry has already failed and its result
+     *              must be set with {@link #fail(int, Throwable)}
+     */
+    public TransactionBatch(List<Item> items) {
+        this.items = items;
+        this.results = new Result[items.size()];
+        this.remaining = new AtomicInteger(items.size());
+    }
+
+    /**
+     * Records an item that failed before it could be sent, e.g. an unparseable notification.
+     */
+    public void fail(int index, Throwable error) {
+        results[index] = new Result(error);
+    }
+
+    public void start(Executor executor, int parallelism, GuardianCallback<Result[]> callback) {
+        if (items.isEmpty()) {
+            callback.onSuccess(results);
+            return;
+        }
+        this.executor = executor;
+        this.callback = callback;
+        int running = Math.max(1, Math.min(parallelism, items.size()));
+        for (int i = 0; i < running; i++) {
+            startNext();
+        }
+    }
+
+    // skips the items that already failed; started from the executor so a result that is ready
+    // at once, e.g. a repeated decision, does not recurse into the next item
+    private void startNext() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < items.size()) {
+                    Item item = items.get(index);
+                    if (item != null) {
+                        startItem(index, item);
+                        return;
+                    }
+                    finish();
+                }
+            }
+        });
+    }
+
+    private void startItem(final int index, Item item) {
+        GuardianCallback<Void> itemCallback = new GuardianCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+                complete(index, null);
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                complete(index, exception);
+            }
+        };
+        try {
+            item.start(itemCallback);
+        } catch (RuntimeException e) {
+            itemCallback.onFailure(e);
+        }
+    }
+
+    private void complete(int index, Throwable error) {
+        results[index] = new Result(error);
+        if (!finish()) {
+            startNext();
+        }
+    }
+
+    // true once every item has a result
+    private boolean finish() {
+        if (remaining.decrementAndGet() == 0) {
+            // the counter's write/read pair publishes every item's results
+            callback.onSuccess(results);
+            return true;
+        }
+        return false;
+    }
+}
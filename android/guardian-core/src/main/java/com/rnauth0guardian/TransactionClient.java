@@ -0,0 +1,108 @@
+package com.rnauth0guardian;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.Executor;
+
+import okio.ByteString;
+
+/**
+ * Resolves Guardian push transactions. This mirrors what the Guardian SDK does for
+ * {@code allow}/{@code reject}, but signs the challenge response with the enrollment's
+ * cached {@link SigningKeyHolder} instead of setting up a new signer for every JWT.
+ */
+public class TransactionClient {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String GUARDIAN_DOMAIN = "guardian.auth0.com";
+    private static final int JWT_TTL_SECONDS = 30;
+    private static final String JWT_HEADER = base64Url("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(UTF_8));
+
+    private final String baseUrl;
+    private final String resolveTransactionUrl;
+    private final GuardianHttpClient httpClient;
+    private final Executor executor;
+
+    /**
+     * @param executor where {@link TransactionRequest#start} signs and sends requests
+     */
+    public TransactionClient(String domain, GuardianHttpClient httpClient, Executor executor) {
+        this.baseUrl = baseUrl(domain);
+        this.resolveTransactionUrl = baseUrl + "api/resolve-transaction";
+        this.httpClient = httpClient;
+        this.executor = executor;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Opens a connection to the tenant so the next request skips DNS and the TLS handshake.
+     */
+    public void prewarm(GuardianHttpClient.Callback callback) {
+        httpClient.prewarm(baseUrl, callback);
+    }
+
+    static String baseUrl(String domain) {
+        String url = domain.startsWith("http://") || domain.startsWith("https://") ? domain : "https://" + domain;
+        if (!url.endsWith("/")) {
+            url += "/";
+        }
+        // same rule as the Guardian SDK: custom domains are served under /appliance-mfa
+        String host = url.substring(url.indexOf("://") + 3, url.indexOf('/', url.indexOf("://") + 3));
+        if (!host.endsWith(GUARDIAN_DOMAIN)) {
+            url += "appliance-mfa/";
+        }
+        return url;
+    }
+
+    public TransactionRequest allow(GuardianNotification notification, GuardianEnrollment enrollment) {
+        return resolve(notification, enrollment, true, null);
+    }
+
+    public TransactionRequest reject(GuardianNotification notification, GuardianEnrollment enrollment, String reason) {
+        return resolve(notification, enrollment, false, reason);
+    }
+
+    private TransactionRequest resolve(GuardianNotification notification, GuardianEnrollment enrollment,
+                                       boolean accepted, String reason) {
+        return new TransactionRequest(resolveTransactionUrl, notification.getTransactionToken(),
+                enrollment.getDeviceIdentifier(), notification.getChallenge(), accepted, reason,
+                enrollment.getSigningKeyHolder(), this, httpClient.get(), executor);
+    }
+
+    String createChallengeResponse(String deviceIdentifier, String challenge, boolean accepted,
+                                   String reason, SigningKeyHolder signingKey)
+            throws JSONException, GeneralSecurityException {
+        long now = System.currentTimeMillis() / 1000L;
+        JSONObject claims = new JSONObject();
+        claims.put("iat", now);
+        claims.put("exp", now + JWT_TTL_SECONDS);
+        claims.put("aud", resolveTransactionUrl);
+        claims.put("iss", deviceIdentifier);
+        claims.put("sub", challenge);
+        claims.put("auth0_guardian_method", "push");
+        claims.put("auth0_guardian_accepted", accepted);
+        if (reason != null) {
+            claims.put("auth0_guardian_reason", reason);
+        }
+
+        String signingInput = JWT_HEADER + "." + base64Url(claims.toString().getBytes(UTF_8));
+        byte[] signature = signingKey.sign(signingInput.getBytes(UTF_8));
+        return signingInput + "." + base64Url(signature);
+    }
+
+    private static String base64Url(byte[] data) {
+        // JWTs use the URL-safe alphabet without padding
+        String encoded = ByteString.of(data).base64Url();
+        int end = encoded.length();
+        while (end > 0 && encoded.charAt(end - 1) == '=') {
+            end--;
+        }
+        return encoded.substring(0, end);
+    }
+}
@@ -0,0 +1,133 @@
+package com.rnauth0guardian;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Collapses repeated decisions for the same transaction token. FCM may deliver a push more than
+ * once and JS may call {@code allow} twice; only the first call sends a request and later calls
+ * for the same token and decision get its result.
+ * <p>
+ * While a request is in flight later callers wait for it. A successful result is remembered for
+ * {@code ttlMillis}; a failure is forgotten right away so the decision can be retried. The cache
+ * is an LRU bounded to {@code maxEntries} completed entries. Requests in flight are never
+ * evicted, however many there are, or a redelivered push would send a second request.
+ */
+public class TransactionDeduplicator {
+
+    static final int DEFAULT_MAX_ENTRIES = 64;
+    static final long DEFAULT_TTL_MS = 5 * 60 * 1000;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // guarded by this
+    private final LinkedHashMap<String, Entry> entries;
+
+    public TransactionDeduplicator(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Registers {@code callback} for the decision on {@code transactionToken}. Returns
+     * {@code null} when the caller joined an earlier request; the callback will be (or already
+     * was) called with its result. Otherwise returns the callback the caller must pass to the
+     * request it now sends.
+     */
+    public GuardianCallback<Void> begin(final String transactionToken, boolean accepted, GuardianCallback<Void> callback) {
+        final Entry entry;
+        synchronized (this) {
+            Entry existing = entries.get(transactionToken);
+            if (existing != null && existing.accepted == accepted) {
+                if (!existing.completed) {
+                    existing.waiters.add(callback);
+                    return null;
+                }
+                if (System.currentTimeMillis() - existing.completedAt <= ttlMillis) {
+                    entry = null;
+                } else {
+                    entries.remove(transactionToken);
+                    entry = newEntry(transactionToken, accepted, callback);
+                }
+            } else {
+                entry = newEntry(transactionToken, accepted, callback);
+            }
+        }
+        if (entry == null) {
+            // delivered recently, answer without sending again
+            callback.onSuccess(null);
+            return null;
+        }
+
+        return new GuardianCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+                complete(transactionToken, entry, null);
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                complete(transactionToken, entry, exception);
+            }
+        };
+    }
+
+    // called with the lock held
+    private Entry newEntry(String transactionToken, boolean accepted, GuardianCallback<Void> callback) {
+        Entry entry = new Entry(accepted);
+        entry.waiters.add(callback);
+        entries.put(transactionToken, entry);
+        evict();
+        return entry;
+    }
+
+    // called with the lock held; the access-ordered map keeps the least recently used first
+    private void evict() {
+        int excess = entries.size() - maxEntries;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            if (iterator.next().completed) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+    private void complete(String transactionToken, Entry entry, Throwable error) {
+        List<GuardianCallback<Void>> waiters;
+        synchronized (this) {
+            waiters = new ArrayList<>(entry.waiters);
+            entry.waiters.clear();
+            if (error == null) {
+                entry.completed = true;
+                entry.completedAt = System.currentTimeMillis();
+                // it may have been kept past the bound while in flight
+                evict();
+            } else if (entries.get(transactionToken) == entry) {
+                entries.remove(transactionToken);
+            }
+        }
+        for (GuardianCallback<Void> waiter : waiters) {
+            if (error == null) {
+                waiter.onSuccess(null);
+            } else {
+                waiter.onFailure(error);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final boolean accepted;
+        final List<GuardianCallback<Void>> waiters = new ArrayList<>(1);
+        boolean completed;
+        long completedAt;
+
+        Entry(boolean accepted) {
+            this.accepted = accepted;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.rnauth0guardian;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Error response from the Guardian API, e.g. {@code {"statusCode":404,"errorCode":"..."}}.
+ */
+public class TransactionException extends Exception {
+
+    private final int statusCode;
+    private final String errorCode;
+
+    public TransactionException(int statusCode, String errorCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+    }
+
+    static TransactionException fromResponse(int statusCode, String body) {
+        String errorCode = null;
+        String message = null;
+        try {
+            JSONObject json = new JSONObject(body);
+            errorCode = json.optString("errorCode", null);
+            message = json.optString("message", null);
+        } catch (JSONException ignored) {
+            // not a JSON error body
+        }
+        if (message == null) {
+            message = "Guardian request failed with status " + statusCode;
+        }
+        return new TransactionException(statusCode, errorCode, message);
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
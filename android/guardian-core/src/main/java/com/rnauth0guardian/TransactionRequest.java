@@ -0,0 +1,107 @@
+package com.rnauth0guardian;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * A single resolve-transaction call. Like the SDK's requests it can be run synchronously with
+ * {@link #execute()} or in the background with {@link #start(GuardianCallback)}.
+ */
+public class TransactionRequest {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final String url;
+    private final String transactionToken;
+    private final String deviceIdentifier;
+    private final String challenge;
+    private final boolean accepted;
+    private final String reason;
+    private final SigningKeyHolder signingKey;
+    private final TransactionClient client;
+    private final OkHttpClient httpClient;
+    private final Executor executor;
+
+    TransactionRequest(String url, String transactionToken, String deviceIdentifier, String challenge,
+                       boolean accepted, String reason, SigningKeyHolder signingKey,
+                       TransactionClient client, OkHttpClient httpClient, Executor executor) {
+        this.url = url;
+        this.transactionToken = transactionToken;
+        this.deviceIdentifier = deviceIdentifier;
+        this.challenge = challenge;
+        this.accepted = accepted;
+        this.reason = reason;
+        this.signingKey = signingKey;
+        this.client = client;
+        this.httpClient = httpClient;
+        this.executor = executor;
+    }
+
+    public void execute() throws Exception {
+        long start = System.nanoTime();
+        String body;
+        try {
+            // a key not parsed yet is parsed here, and recorded on its own as well
+            JSONObject json = new JSONObject();
+            json.put("challenge_response", client.createChallengeResponse(
+                    deviceIdentifier, challenge, accepted, reason, signingKey));
+            body = json.toString();
+        } catch (Exception e) {
+            GuardianMetrics.record(GuardianMetrics.SIGN, start, e);
+            throw e;
+        }
+        GuardianMetrics.record(GuardianMetrics.SIGN, start);
+
+        start = System.nanoTime();
+        try {
+            post(body);
+        } catch (Exception e) {
+            GuardianMetrics.record(GuardianMetrics.NETWORK, start, e);
+            throw e;
+        }
+        GuardianMetrics.record(GuardianMetrics.NETWORK, start);
+    }
+
+    public void start(final GuardianCallback<Void> callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    execute();
+                } catch (Throwable e) {
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess(null);
+            }
+        });
+    }
+
+    private void post(String body) throws IOException, TransactionException {
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Authorization", "Bearer " + transactionToken)
+                .post(RequestBody.create(JSON, body))
+                .build();
+        Response response = httpClient.newCall(request).execute();
+        try {
+            ResponseBody responseBody = response.body();
+            // read the body in full either way so the connection goes back to the pool
+            String content = responseBody != null ? responseBody.string() : "";
+            if (!response.isSuccessful()) {
+                throw TransactionException.fromResponse(response.code(), content);
+            }
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.rnauth0guardian;
+
+import java.io.IOException;
+
+/**
+ * Answers Guardian push transactions: finds the enrollment a push was sent to, works out the
+ * tenant to talk to, and signs and sends the decision. Shared by the React Native module and
+ * the headless notification actions.
+ * <p>
+ * An enrollment knows its tenant; enrollments stored by earlier versions fall back to the default
+ * domain, which is what they were created against, and only then to the host the push came from.
+ */
+public class TransactionResolver {
+
+    /**
+     * Looks up the transaction client for a tenant domain, e.g. from a cache.
+     */
+    public interface ClientProvider {
+        TransactionClient get(String domain);
+    }
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final ClientProvider clients;
+    private final TransactionDeduplicator deduplicator;
+    private final DecisionOutbox outbox;
+
+    // domain passed to initialize, used when nothing else names the tenant
+    private volatile String defaultDomain;
+
+    /**
+     * @param deduplicator collapses repeated decisions for one transaction; may be {@code null}
+     * @param outbox       keeps decisions that failed for lack of network; may be {@code null}
+     */
+    public TransactionResolver(EnrollmentRepository enrollmentRepository, ClientProvider clients,
+                               TransactionDeduplicator deduplicator, DecisionOutbox outbox) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.clients = clients;
+        this.deduplicator = deduplicator;
+        this.outbox = outbox;
+    }
+
+    public String getDefaultDomain() {
+        return defaultDomain;
+    }
+
+    public void setDefaultDomain(String domain) {
+        defaultDomain = domain;
+    }
+
+    /**
+     * Notifications carry the id of the enrollment they were sent to; older payloads without it
+     * get the most recent enrollment.
+     */
+    public GuardianEnrollment findEnrollment(GuardianNotification notification) {
+        String enrollmentId = notification.getEnrollmentId();
+        if (enrollmentId == null) {
+            return enrollmentRepository.getPrimary();
+        }
+        return enrollmentRepository.getById(enrollmentId);
+    }
+
+    /**
+     * The tenant for {@code enrollment}, either of which may be {@code null}.
+     *
+     * @throws IllegalStateException if nothing names the tenant and there is no default domain
+     */
+    public String domainFor(GuardianEnrollment enrollment, GuardianNotification notification) {
+        String domain = enrollment != null ? enrollment.getDomain() : null;
+        if (domain == null) {
+            domain = defaultDomain;
+        }
+        if (domain == null && notification != null) {
+            domain = notification.getHostname();
+        }
+        return domainOrDefault(domain);
+    }
+
+    public String domainOrDefault(String domain) {
+        if (domain == null) {
+            domain = defaultDomain;
+        }
+        if (domain == null) {
+            throw new IllegalStateException("NOT_INITIALIZED");
+        }
+        return domain;
+    }
+
+    public TransactionClient clientFor(GuardianEnrollment enrollment, GuardianNotification notification) {
+        return clients.get(domainFor(enrollment, notification));
+    }
+
+    /**
+     * Builds the request for a decision without sending it.
+     *
+     * @throws IllegalStateException if the device holds no enrollment for the notification
+     */
+    public TransactionRequest prepare(GuardianNotification notification, boolean accepted, String reason) {
+        GuardianEnrollment enrollment = findEnrollment(notification);
+        if (enrollment == null) {
+            throw new IllegalStateException("DEVICE_NOT_ENROLLED");
+        }
+        TransactionClient transactionClient = clientFor(enrollment, notification);
+        return accepted
+                ? transactionClient.allow(notification, enrollment)
+                : transactionClient.reject(notification, enrollment, reason);
+    }
+
+    /**
+     * Sends a decision in the background. Repeated decisions for the same transaction share one
+     * request; one that fails for lack of network is handed to the outbox.
+     *
+     * @throws IllegalStateException if the request cannot be built, see {@link #prepare}
+     */
+    public void resolve(GuardianNotification notification, boolean accepted, String reason,
+                        GuardianCallback<Void> callback) {
+        final int metric = accepted ? GuardianMetrics.ALLOW : GuardianMetrics.REJECT;
+        final long start = System.nanoTime();
+        TransactionRequest request;
+        try {
+            request = prepare(notification, accepted, reason);
+        } catch (RuntimeException e) {
+            GuardianMetrics.record(metric, start, e);
+            throw e;
+        }
+        send(request, notification, accepted, reason, timed(metric, start, callback));
+    }
+
+    /**
+     * Builds a decision for {@link TransactionBatch}. Once started it is sent like
+     * {@link #resolve}, sharing the request of a repeated decision and the outbox.
+     *
+     * @throws IllegalStateException if the request cannot be built, see {@link #prepare}
+     */
+    public TransactionBatch.Item prepareItem(final GuardianNotification notification, final boolean accepted,
+                                             final String reason) {
+        final int metric = accepted ? GuardianMetrics.ALLOW : GuardianMetrics.REJECT;
+        final long start = System.nanoTime();
+        final TransactionRequest request;
+        try {
+            request = prepare(notification, accepted, reason);
+        } catch (RuntimeException e) {
+            GuardianMetrics.record(metric, start, e);
+            throw e;
+        }
+        return new TransactionBatch.Item() {
+            @Override
+            public void start(GuardianCallback<Void> callback) {
+                // timed from when the batch was called, including the wait for a free slot
+                send(request, notification, accepted, reason, timed(metric, start, callback));
+            }
+        };
+    }
+
+    private void send(TransactionRequest request, final GuardianNotification notification, final boolean accepted,
+                      final String reason, GuardianCallback<Void> callback) {
+        final GuardianCallback<Void> completer = deduplicator != null
+                ? deduplicator.begin(notification.getTransactionToken(), accepted, callback)
+                : callback;
+        if (completer == null) {
+            return;
+        }
+        request.start(new GuardianCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+                onSent(notification, accepted, reason, null);
+                completer.onSuccess(null);
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                // queued once, however many callers were waiting on this request
+                onSent(notification, accepted, reason, exception);
+                completer.onFailure(exception);
+            }
+        });
+    }
+
+    /**
+     * Keeps the outbox in step with a decision that was sent, {@code error} being {@code null}
+     * if it was delivered. One that failed for lack of network is queued; a delivered one
+     * cancels whatever an earlier attempt queued for the transaction.
+     */
+    private void onSent(GuardianNotification notification, boolean accepted, String reason, Throwable error) {
+        if (outbox == null) {
+            return;
+        }
+        if (error == null) {
+            outbox.cancel(notification.getTransactionToken());
+        } else if (error instanceof IOException) {
+            outbox.enqueue(notification, accepted, reason);
+        }
+    }
+
+    // each caller is timed, including those that joined a request already in flight
+    private static GuardianCallback<Void> timed(final int metric, final long start,
+                                                final GuardianCallback<Void> callback) {
+        return new GuardianCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+                GuardianMetrics.record(metric, start);
+                callback.onSuccess(response);
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                GuardianMetrics.record(metric, start, exception);
+                callback.onFailure(exception);
+            }
+        };
+    }
+}
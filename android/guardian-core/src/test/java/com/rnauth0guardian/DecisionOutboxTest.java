@@ -0,0 +1,180 @@
+package com.rnauth0guardian;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DecisionOutboxTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String LOG_FILE = "rnauth0guardian-outbox.log";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysTheLatestDecisionPerTransaction() throws Exception {
+        long future = System.currentTimeMillis() + 60000;
+        writeLog(
+                put("tx1", true, future),
+                put("tx2", false, future),
+                remove("tx2"),
+                put("tx1", false, future),
+                put("expired", true, System.currentTimeMillis() - 1000),
+                // torn write of the last line
+                "{\"op\":\"put\",\"txt");
+        RecordingSender sender = new RecordingSender(1);
+
+        DecisionOutbox outbox = new DecisionOutbox(folder.getRoot(), sender, sender);
+        outbox.start();
+
+        assertTrue(sender.done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sender.sent.size());
+        DecisionOutbox.Decision decision = sender.sent.get(0);
+        assertEquals("tx1", decision.notification.getTransactionToken());
+        assertEquals("dev_1", decision.notification.getEnrollmentId());
+        assertEquals("challenge", decision.notification.getChallenge());
+        assertFalse(decision.accepted);
+        assertEquals(0, outbox.getDepth());
+    }
+
+    @Test
+    public void compactsTheLogAndSendsTheLatestDecision() throws Exception {
+        final File log = new File(folder.getRoot(), LOG_FILE);
+        final List<Integer> logLines = new ArrayList<>();
+        RecordingSender sender = new RecordingSender(1) {
+            @Override
+            public void send(DecisionOutbox.Decision decision) throws Exception {
+                // called on the outbox thread once every enqueue below was appended
+                logLines.add(Files.readAllLines(log.toPath(), UTF_8).size());
+                super.send(decision);
+            }
+        };
+        DecisionOutbox outbox = new DecisionOutbox(folder.getRoot(), sender, sender);
+
+        for (int i = 0; i < 40; i++) {
+            outbox.enqueue(new GuardianNotification("tx1", "dev_1", "challenge", null, null), i % 2 == 0, null);
+        }
+
+        assertTrue(sender.done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, sender.sent.size());
+        // the last of the 40 decisions was a reject
+        assertFalse(sender.sent.get(0).accepted);
+        // compacted once 32 lines were superseded, then the last 7 appended again
+        assertEquals(8, (int) logLines.get(0));
+    }
+
+    @Test
+    public void flushCallsBackOnceTheDecisionIsInTheLog() throws Exception {
+        final File log = new File(folder.getRoot(), LOG_FILE);
+        final List<String> lines = new ArrayList<>();
+        final CountDownLatch flushed = new CountDownLatch(1);
+        RecordingSender sender = new RecordingSender(1);
+        DecisionOutbox outbox = new DecisionOutbox(folder.getRoot(), sender, sender);
+
+        outbox.enqueue(new GuardianNotification("tx1", "dev_1", "challenge", null, null), true, null);
+        outbox.flush(new GuardianCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+                try {
+                    lines.addAll(Files.readAllLines(log.toPath(), UTF_8));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+                flushed.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+            }
+        });
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\"txtkn\":\"tx1\""));
+    }
+
+    @Test
+    public void dropsDecisionsTheServerRejects() throws Exception {
+        writeLog(put("tx1", true, System.currentTimeMillis() + 60000));
+        RecordingSender sender = new RecordingSender(1) {
+            @Override
+            public void send(DecisionOutbox.Decision decision) throws Exception {
+                throw TransactionException.fromResponse(404, "{\"errorCode\":\"login_transaction_not_found\"}");
+            }
+        };
+
+        DecisionOutbox outbox = new DecisionOutbox(folder.getRoot(), sender, sender);
+        outbox.start();
+
+        assertTrue(sender.done.await(5, TimeUnit.SECONDS));
+        assertEquals("failed", sender.dropReason);
+        assertEquals(0, outbox.getDepth());
+    }
+
+    private void writeLog(String... lines) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(new File(folder.getRoot(), LOG_FILE)), UTF_8);
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String put(String transactionToken, boolean accepted, long expiresAt) {
+        return "{\"op\":\"put\",\"txtkn\":\"" + transactionToken + "\",\"dai\":\"dev_1\",\"c\":\"challenge\","
+                + "\"accept\":" + accepted + ",\"exp\":" + expiresAt + "}";
+    }
+
+    private static String remove(String transactionToken) {
+        return "{\"op\":\"remove\",\"txtkn\":\"" + transactionToken + "\"}";
+    }
+
+    /**
+     * Delivers every decision, and counts down once per delivered or dropped one.
+     */
+    static class RecordingSender implements DecisionOutbox.Sender, DecisionOutbox.Listener {
+        final List<DecisionOutbox.Decision> sent = new ArrayList<>();
+        final CountDownLatch done;
+        volatile String dropReason;
+
+        RecordingSender(int decisions) {
+            done = new CountDownLatch(decisions);
+        }
+
+        @Override
+        public void send(DecisionOutbox.Decision decision) throws Exception {
+            sent.add(decision);
+        }
+
+        @Override
+        public void onDelivered(DecisionOutbox.Decision decision) {
+            done.countDown();
+        }
+
+        @Override
+        public void onDropped(DecisionOutbox.Decision decision, String reason, Throwable error) {
+            dropReason = reason;
+            done.countDown();
+        }
+    }
+}
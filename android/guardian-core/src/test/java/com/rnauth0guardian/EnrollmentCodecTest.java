@@ -0,0 +1,101 @@
+package com.rnauth0guardian;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EnrollmentCodecTest {
+
+    private static final byte[] PRIVATE_KEY = {0x30, (byte) 0x82, 0x04, (byte) 0xbd, 0x02, 0x01, 0x00};
+
+    static GuardianEnrollment enrollment(String id, String domain) {
+        return new GuardianEnrollment(id, "auth0|" + id, 30, 6, "sha1", "GEZDGNBVGY3TQOJQ",
+                "device-" + id, "Pixel ünïcödé", "gcm-token", "device-token", PRIVATE_KEY, domain);
+    }
+
+    @Test
+    public void roundTripsEveryField() {
+        GuardianEnrollment original = enrollment("dev_1", "tenant.guardian.auth0.com");
+
+        String stored = EnrollmentCodec.encodeToString(original);
+        GuardianEnrollment decoded = EnrollmentCodec.decode(stored);
+
+        assertFalse(EnrollmentCodec.isLegacy(stored));
+        assertSameEnrollment(original, decoded);
+        assertEquals("tenant.guardian.auth0.com", decoded.getDomain());
+    }
+
+    @Test
+    public void roundTripsNullFields() {
+        GuardianEnrollment original = new GuardianEnrollment("dev_1", null, null, null, null, "GEZDGNBVGY3TQOJQ",
+                "device", null, null, "device-token", PRIVATE_KEY, null);
+
+        GuardianEnrollment decoded = EnrollmentCodec.decode(EnrollmentCodec.encode(original));
+
+        assertSameEnrollment(original, decoded);
+    }
+
+    @Test
+    public void readsVersion1RecordsWithoutDomain() {
+        // version 1 is version 2 without the trailing domain, here a null one
+        byte[] version2 = EnrollmentCodec.encode(enrollment("dev_1", null));
+        byte[] version1 = Arrays.copyOf(version2, version2.length - 1);
+        version1[0] = EnrollmentCodec.VERSION_1;
+
+        GuardianEnrollment decoded = EnrollmentCodec.decode(ByteString.of(version1).base64());
+
+        assertSameEnrollment(enrollment("dev_1", null), decoded);
+        assertNull(decoded.getDomain());
+    }
+
+    @Test
+    public void readsLegacyJson() {
+        String legacy = "{\"id\":\"dev_1\",\"userId\":\"auth0|dev_1\",\"period\":30,\"digits\":6,"
+                + "\"algorithm\":\"sha1\",\"secret\":\"GEZDGNBVGY3TQOJQ\",\"deviceIdentifier\":\"device-dev_1\","
+                + "\"deviceName\":\"Pixel ünïcödé\",\"deviceGCMToken\":\"gcm-token\",\"deviceToken\":\"device-token\","
+                + "\"privateKey\":\"" + ByteString.of(PRIVATE_KEY).base64() + "\"}";
+
+        GuardianEnrollment decoded = EnrollmentCodec.decode(legacy);
+
+        assertTrue(EnrollmentCodec.isLegacy(legacy));
+        assertSameEnrollment(enrollment("dev_1", null), decoded);
+        // and it is written back in the binary format
+        assertSameEnrollment(decoded, EnrollmentCodec.decode(EnrollmentCodec.encodeToString(decoded)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnUnknownVersion() {
+        byte[] encoded = EnrollmentCodec.encode(enrollment("dev_1", null));
+        encoded[0] = 3;
+        EnrollmentCodec.decode(encoded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsATruncatedRecord() {
+        byte[] encoded = EnrollmentCodec.encode(enrollment("dev_1", "tenant.guardian.auth0.com"));
+        EnrollmentCodec.decode(Arrays.copyOf(encoded, encoded.length - 4));
+    }
+
+    private static void assertSameEnrollment(GuardianEnrollment expected, GuardianEnrollment actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getPeriod(), actual.getPeriod());
+        assertEquals(expected.getDigits(), actual.getDigits());
+        assertEquals(expected.getAlgorithm(), actual.getAlgorithm());
+        assertEquals(expected.getSecret(), actual.getSecret());
+        assertEquals(expected.getDeviceIdentifier(), actual.getDeviceIdentifier());
+        assertEquals(expected.getDeviceName(), actual.getDeviceName());
+        assertEquals(expected.getNotificationToken(), actual.getNotificationToken());
+        assertEquals(expected.getDeviceToken(), actual.getDeviceToken());
+        assertArrayEquals(expected.getPrivateKey(), actual.getPrivateKey());
+        assertEquals(expected.getDomain(), actual.getDomain());
+    }
+}
@@ -0,0 +1,300 @@
+package com.rnauth0guardian;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EnrollmentRepositoryTest {
+
+    private final QueueExecutor storage = new QueueExecutor();
+    private final CountingStore store = new CountingStore();
+
+    @Test
+    public void publishesChangesBeforeTheyAreWritten() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+
+        assertEquals("dev_1", repository.getPrimary().getId());
+        assertEquals(0, store.commits);
+    }
+
+    @Test
+    public void collapsesBackToBackChangesIntoOneWrite() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        repository.save(EnrollmentCodecTest.enrollment("dev_2", null));
+        repository.remove("dev_1");
+        storage.runAll();
+
+        assertEquals(1, store.commits);
+        EnrollmentRepository reloaded = reload();
+        assertNull(reloaded.getById("dev_1"));
+        assertEquals("dev_2", reloaded.getPrimary().getId());
+        assertEquals(1, reloaded.getAll().size());
+    }
+
+    @Test
+    public void writesInOrder() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        storage.runAll();
+        repository.save(EnrollmentCodecTest.enrollment("dev_2", null));
+        repository.remove("dev_1");
+        storage.runAll();
+
+        assertEquals(2, store.commits);
+        EnrollmentRepository reloaded = reload();
+        assertNull(reloaded.getById("dev_1"));
+        assertNotNull(reloaded.getById("dev_2"));
+        assertNull(store.get("ENROLLMENT:dev_1"));
+    }
+
+    @Test
+    public void flushWaitsForEarlierChanges() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+        List<String> events = new ArrayList<>();
+
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        repository.flush(new EventCallback(events, "first"));
+        repository.save(EnrollmentCodecTest.enrollment("dev_2", null));
+        repository.flush(new EventCallback(events, "second"));
+        assertTrue(events.isEmpty());
+
+        storage.runAll();
+
+        assertEquals(1, store.commits);
+        assertEquals("[first, second]", events.toString());
+        assertEquals(2, reload().getAll().size());
+    }
+
+    @Test
+    public void flushWithNothingPendingCallsBackAtOnce() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+        List<String> events = new ArrayList<>();
+
+        repository.flush(new EventCallback(events, "flushed"));
+
+        assertEquals("[flushed]", events.toString());
+    }
+
+    @Test
+    public void flushReportsAFailedWriteAndRetries() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+        List<String> events = new ArrayList<>();
+
+        store.failing = true;
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        repository.flush(new EventCallback(events, "first"));
+        storage.runAll();
+        store.failing = false;
+        repository.flush(new EventCallback(events, "retry"));
+        storage.runAll();
+
+        assertEquals("[first failed, retry]", events.toString());
+        assertNotNull(reload().getById("dev_1"));
+    }
+
+    @Test
+    public void migratesTheLegacyEnrollment() {
+        GuardianEnrollment legacy = EnrollmentCodecTest.enrollment("dev_1", null);
+        store.values.put("ENROLLMENT", "{\"id\":\"dev_1\",\"userId\":\"auth0|dev_1\",\"secret\":\"GEZDGNBVGY3TQOJQ\","
+                + "\"deviceIdentifier\":\"device-dev_1\",\"privateKey\":\""
+                + ByteString.of(legacy.getPrivateKey()).base64() + "\"}");
+        EnrollmentRepository repository = reload();
+
+        assertEquals("device-dev_1", repository.getPrimary().getDeviceIdentifier());
+        assertNull(store.get("ENROLLMENT"));
+        assertNotNull(store.get("ENROLLMENT_INDEX"));
+        assertEquals("auth0|dev_1", reload().getById("dev_1").getUserId());
+    }
+
+    @Test
+    public void treatsACorruptLegacyEnrollmentAsAbsent() {
+        store.values.put("ENROLLMENT", "{\"id\":");
+        EnrollmentRepository repository = reload();
+
+        assertNull(repository.getPrimary());
+        assertTrue(repository.getAll().isEmpty());
+    }
+
+    @Test
+    public void readsTheStoreOnlyOnTheStorageThread() {
+        new EnrollmentRepository(store, storage).save(EnrollmentCodecTest.enrollment("dev_1", null));
+        storage.runAll();
+        store.reads = 0;
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+
+        assertNull(repository.getPrimary());
+        assertFalse(repository.isLoaded());
+        assertEquals(0, store.reads);
+
+        storage.runAll();
+
+        assertTrue(repository.isLoaded());
+        assertEquals("dev_1", repository.getPrimary().getId());
+    }
+
+    @Test
+    public void changesBeforeTheLoadKeepTheStoredEnrollments() {
+        EnrollmentRepository first = new EnrollmentRepository(store, storage);
+        first.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        first.save(EnrollmentCodecTest.enrollment("dev_2", null));
+        storage.runAll();
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+
+        repository.save(EnrollmentCodecTest.enrollment("dev_3", null));
+        repository.remove("dev_1");
+        assertEquals(1, repository.getAll().size());
+        storage.runAll();
+
+        assertNull(repository.getById("dev_1"));
+        assertNotNull(repository.getById("dev_2"));
+        assertEquals("dev_3", repository.getPrimary().getId());
+        EnrollmentRepository reloaded = reload();
+        assertEquals(2, reloaded.getAll().size());
+        assertEquals("dev_3", reloaded.getPrimary().getId());
+    }
+
+    @Test
+    public void keepsTheSameUserEnrolledWithTwoTenants() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+        GuardianEnrollment first = EnrollmentCodecTest.enrollment("dev_1", "first.guardian.auth0.com");
+        GuardianEnrollment second = new GuardianEnrollment("dev_2", first.getUserId(), 30, 6, "sha1",
+                "GEZDGNBVGY3TQOJQ", first.getDeviceIdentifier(), "Pixel", "gcm-token", "device-token",
+                first.getPrivateKey(), "second.guardian.auth0.com");
+
+        repository.save(first);
+        repository.save(second);
+        storage.runAll();
+
+        for (EnrollmentRepository reloaded : Arrays.asList(repository, reload())) {
+            List<EnrollmentRepository.Record> byUser = reloaded.getAllByUserId("auth0|dev_1");
+            assertEquals(2, byUser.size());
+            assertEquals("first.guardian.auth0.com", byUser.get(0).get().getDomain());
+            assertEquals("second.guardian.auth0.com", byUser.get(1).get().getDomain());
+            assertEquals(2, reloaded.getAllByDeviceIdentifier("device-dev_1").size());
+        }
+        repository.remove("dev_1");
+        assertEquals("dev_2", repository.getByUserId("auth0|dev_1").getId());
+        assertEquals("dev_2", repository.getByDeviceIdentifier("device-dev_1").getId());
+        assertTrue(repository.getAllByUserId("auth0|nobody").isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesAnAmbiguousUserLookup() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+        GuardianEnrollment first = EnrollmentCodecTest.enrollment("dev_1", "first.guardian.auth0.com");
+        repository.save(first);
+        repository.save(new GuardianEnrollment("dev_2", first.getUserId(), 30, 6, "sha1", "GEZDGNBVGY3TQOJQ",
+                "device-dev_2", "Pixel", "gcm-token", "device-token", first.getPrivateKey(),
+                "second.guardian.auth0.com"));
+
+        repository.getByUserId("auth0|dev_1");
+    }
+
+    // a repository over the store, with the stored enrollments loaded
+    private EnrollmentRepository reload() {
+        EnrollmentRepository repository = new EnrollmentRepository(store, storage);
+        repository.load(new GuardianCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer response) {
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                throw new AssertionError(exception);
+            }
+        });
+        storage.runAll();
+        return repository;
+    }
+
+    /**
+     * Runs tasks only when the test says so, standing in for the storage thread.
+     */
+    static final class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runNext() {
+            tasks.remove().run();
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                runNext();
+            }
+        }
+    }
+
+    static final class CountingStore implements EnrollmentStore {
+        final Map<String, String> values = new HashMap<>();
+        int reads;
+        int commits;
+        boolean failing;
+
+        @Override
+        public String get(String key) {
+            reads++;
+            return values.get(key);
+        }
+
+        @Override
+        public boolean commit(Map<String, String> changes) {
+            if (failing) {
+                return false;
+            }
+            commits++;
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    values.remove(change.getKey());
+                } else {
+                    values.put(change.getKey(), change.getValue());
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class EventCallback implements GuardianCallback<Void> {
+        private final List<String> events;
+        private final String name;
+
+        EventCallback(List<String> events, String name) {
+            this.events = events;
+            this.name = name;
+        }
+
+        @Override
+        public void onSuccess(Void response) {
+            events.add(name);
+        }
+
+        @Override
+        public void onFailure(Throwable exception) {
+            events.add(name + " failed");
+        }
+    }
+}
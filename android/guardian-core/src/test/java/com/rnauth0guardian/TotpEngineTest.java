@@ -0,0 +1,51 @@
+package com.rnauth0guardian;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TotpEngineTest {
+
+    // "12345678901234567890", the SHA-1 seed of RFC 6238 appendix B
+    private static final String SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    @Test
+    public void generatesTheRfc6238Sha1Vectors() throws Exception {
+        TotpEngine engine = new TotpEngine(SECRET, "sha1", 8, 30);
+
+        assertEquals("94287082", engine.generate(59 * 1000L));
+        assertEquals("07081804", engine.generate(1111111109 * 1000L));
+        assertEquals("14050471", engine.generate(1111111111 * 1000L));
+        assertEquals("89005924", engine.generate(1234567890 * 1000L));
+        assertEquals("69279037", engine.generate(2000000000 * 1000L));
+        assertEquals("65353130", engine.generate(20000000000L * 1000L));
+    }
+
+    @Test
+    public void defaultsToSixDigitsOfSha1() throws Exception {
+        TotpEngine engine = new TotpEngine(SECRET, null, null, null);
+
+        assertEquals(30, engine.getPeriod());
+        // the last six digits of the eight digit code
+        assertEquals("287082", engine.generate(59 * 1000L));
+    }
+
+    @Test
+    public void windowHoldsTheNeighbouringPeriods() throws Exception {
+        TotpEngine engine = new TotpEngine(SECRET, "SHA1", 8, 30);
+
+        TotpEngine.Window window = engine.window(1111111111 * 1000L);
+
+        assertEquals(engine.generate(1111111081 * 1000L), window.previous);
+        assertEquals("14050471", window.current);
+        assertEquals(engine.generate(1111111141 * 1000L), window.next);
+        assertEquals(30, window.period);
+        assertEquals(1111111140 * 1000L, window.expiresAt);
+        assertEquals(29, window.remainingSeconds);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnUnknownAlgorithm() throws Exception {
+        new TotpEngine(SECRET, "md5", 6, 30);
+    }
+}
@@ -0,0 +1,68 @@
+package com.rnauth0guardian;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TotpTickerTest {
+
+    private final EnrollmentRepository repository = new EnrollmentRepository(new InMemoryEnrollmentStore(),
+            new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+    private final BlockingQueue<String> ticks = new LinkedBlockingQueue<>();
+    private final TotpTicker ticker = new TotpTicker(repository, new TotpTicker.Listener() {
+        @Override
+        public void onTick(String enrollmentId, TotpEngine.Window window) {
+            ticks.add(enrollmentId);
+        }
+    });
+
+    @After
+    public void shutdown() {
+        ticker.shutdown();
+    }
+
+    @Test
+    public void emitsAtOnceForAStoredEnrollment() throws InterruptedException {
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+
+        ticker.subscribe("dev_1");
+
+        assertEquals("dev_1", ticks.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void startsOnceASubscribedEnrollmentIsSaved() throws InterruptedException {
+        ticker.subscribe("dev_1");
+        assertNull(ticks.poll(200, TimeUnit.MILLISECONDS));
+
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        ticker.enrollmentsChanged();
+
+        assertNotNull(ticks.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void staysQuietInTheBackground() throws InterruptedException {
+        repository.save(EnrollmentCodecTest.enrollment("dev_1", null));
+        ticker.setForeground(false);
+
+        ticker.subscribe("dev_1");
+        assertNull(ticks.poll(200, TimeUnit.MILLISECONDS));
+
+        ticker.setForeground(true);
+        assertEquals("dev_1", ticks.poll(5, TimeUnit.SECONDS));
+    }
+}
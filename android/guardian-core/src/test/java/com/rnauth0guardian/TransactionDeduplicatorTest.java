@@ -0,0 +1,123 @@
+package com.rnauth0guardian;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TransactionDeduplicatorTest {
+
+    private final TransactionDeduplicator deduplicator = new TransactionDeduplicator(
+            TransactionDeduplicator.DEFAULT_MAX_ENTRIES, TransactionDeduplicator.DEFAULT_TTL_MS);
+
+    @Test
+    public void laterCallersWaitForTheRequestInFlight() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+
+        GuardianCallback<Void> completer = deduplicator.begin("txtkn", true, first);
+        assertNotNull(completer);
+        assertNull(deduplicator.begin("txtkn", true, second));
+        assertEquals(0, second.successes);
+
+        completer.onSuccess(null);
+
+        assertEquals(1, first.successes);
+        assertEquals(1, second.successes);
+    }
+
+    @Test
+    public void answersFromTheCacheWithinTtl() {
+        deduplicator.begin("txtkn", true, new RecordingCallback()).onSuccess(null);
+
+        RecordingCallback repeated = new RecordingCallback();
+        assertNull(deduplicator.begin("txtkn", true, repeated));
+        assertEquals(1, repeated.successes);
+    }
+
+    @Test
+    public void sendsAgainOnceTheTtlPassed() throws InterruptedException {
+        TransactionDeduplicator shortLived = new TransactionDeduplicator(8, 20);
+        shortLived.begin("txtkn", true, new RecordingCallback()).onSuccess(null);
+
+        Thread.sleep(50);
+
+        RecordingCallback repeated = new RecordingCallback();
+        assertNotNull(shortLived.begin("txtkn", true, repeated));
+        assertEquals(0, repeated.successes);
+    }
+
+    @Test
+    public void forgetsFailures() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback waiting = new RecordingCallback();
+        IOException error = new IOException("offline");
+
+        GuardianCallback<Void> completer = deduplicator.begin("txtkn", true, first);
+        deduplicator.begin("txtkn", true, waiting);
+        completer.onFailure(error);
+
+        assertSame(error, first.error);
+        assertSame(error, waiting.error);
+        assertNotNull(deduplicator.begin("txtkn", true, new RecordingCallback()));
+    }
+
+    @Test
+    public void doesNotShareBetweenDecisions() {
+        deduplicator.begin("txtkn", true, new RecordingCallback()).onSuccess(null);
+
+        assertNotNull(deduplicator.begin("txtkn", false, new RecordingCallback()));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedToken() {
+        TransactionDeduplicator small = new TransactionDeduplicator(2, TransactionDeduplicator.DEFAULT_TTL_MS);
+        small.begin("a", true, new RecordingCallback()).onSuccess(null);
+        small.begin("b", true, new RecordingCallback()).onSuccess(null);
+        // a lookup counts as a use, so "b" is now the eldest
+        assertNull(small.begin("a", true, new RecordingCallback()));
+
+        small.begin("c", true, new RecordingCallback()).onSuccess(null);
+
+        assertNull(small.begin("a", true, new RecordingCallback()));
+        assertNull(small.begin("c", true, new RecordingCallback()));
+        assertNotNull(small.begin("b", true, new RecordingCallback()));
+    }
+
+    @Test
+    public void neverEvictsARequestInFlight() {
+        TransactionDeduplicator small = new TransactionDeduplicator(2, TransactionDeduplicator.DEFAULT_TTL_MS);
+        GuardianCallback<Void> inFlight = small.begin("a", true, new RecordingCallback());
+        small.begin("b", true, new RecordingCallback()).onSuccess(null);
+        small.begin("c", true, new RecordingCallback()).onSuccess(null);
+        small.begin("d", true, new RecordingCallback());
+
+        // the push for "a" is delivered again while its request is still out
+        RecordingCallback redelivered = new RecordingCallback();
+        assertNull(small.begin("a", true, redelivered));
+        inFlight.onSuccess(null);
+
+        assertEquals(1, redelivered.successes);
+        // completed entries made room instead
+        assertNotNull(small.begin("b", true, new RecordingCallback()));
+    }
+
+    static final class RecordingCallback implements GuardianCallback<Void> {
+        int successes;
+        Throwable error;
+
+        @Override
+        public void onSuccess(Void response) {
+            successes++;
+        }
+
+        @Override
+        public void onFailure(Throwable exception) {
+            error = exception;
+        }
+    }
+}
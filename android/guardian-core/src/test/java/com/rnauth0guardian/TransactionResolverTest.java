@@ -0,0 +1,54 @@
+package com.rnauth0guardian;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransactionResolverTest {
+
+    private final TransactionResolver resolver = new TransactionResolver(
+            new EnrollmentRepository(new InMemoryEnrollmentStore(), new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            }),
+            new TransactionResolver.ClientProvider() {
+                @Override
+                public TransactionClient get(String domain) {
+                    throw new UnsupportedOperationException();
+                }
+            }, null, null);
+
+    private final GuardianNotification push = new GuardianNotification("txtkn", "dev_1", "challenge",
+            "push.guardian.auth0.com", null);
+
+    @Test
+    public void prefersTheDomainOfTheEnrollment() {
+        resolver.setDefaultDomain("default.guardian.auth0.com");
+
+        assertEquals("tenant.guardian.auth0.com",
+                resolver.domainFor(EnrollmentCodecTest.enrollment("dev_1", "tenant.guardian.auth0.com"), push));
+    }
+
+    @Test
+    public void legacyEnrollmentsUseTheDefaultDomainBeforeThePushHost() {
+        resolver.setDefaultDomain("default.guardian.auth0.com");
+
+        assertEquals("default.guardian.auth0.com",
+                resolver.domainFor(EnrollmentCodecTest.enrollment("dev_1", null), push));
+    }
+
+    @Test
+    public void legacyEnrollmentsUseThePushHostBeforeInitialize() {
+        assertEquals("push.guardian.auth0.com",
+                resolver.domainFor(EnrollmentCodecTest.enrollment("dev_1", null), push));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failsWhenNothingNamesTheTenant() {
+        resolver.domainFor(EnrollmentCodecTest.enrollment("dev_1", null), null);
+    }
+}
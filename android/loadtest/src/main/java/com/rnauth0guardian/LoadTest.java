@@ -0,0 +1,295 @@
+package com.rnauth0guardian;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import okhttp3.mockwebserver.MockWebServer;
+
+/**
+ * Drives guardian-core against a {@link MockGuardianServer}: enrolls a number of devices at
+ * once, answers a burst of pushes for them (including redelivered duplicates), then unenrolls
+ * them all, and prints latency percentiles, throughput and failures for each operation.
+ * <p>
+ * Allow and reject go through {@link TransactionResolver} exactly as in the app. Enroll and
+ * unenroll use {@link WireEnrollmentClient} in place of the Guardian SDK.
+ * <p>
+ * Options, all optional:
+ * <pre>
+ * --devices N          devices to enroll (10)
+ * --pushes N           pushes in the burst (50)
+ * --duplicate-rate R   share of pushes delivered twice (0.1)
+ * --latency MS         server response time (100)
+ * --jitter MS          extra random response time, up to (50)
+ * --error-rate R       share of requests answered with a 503 (0)
+ * --disconnect-rate R  share of requests whose connection is dropped (0)
+ * --network-threads N  size of the network pool, as configure({ networkThreads }) (4)
+ * --timeout S          how long to wait for each phase (120)
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = new TreeMap<>();
+
+    static {
+        DEFAULTS.put("devices", "10");
+        DEFAULTS.put("pushes", "50");
+        DEFAULTS.put("duplicate-rate", "0.1");
+        DEFAULTS.put("latency", "100");
+        DEFAULTS.put("jitter", "50");
+        DEFAULTS.put("error-rate", "0");
+        DEFAULTS.put("disconnect-rate", "0");
+        DEFAULTS.put("network-threads", "4");
+        DEFAULTS.put("timeout", "120");
+    }
+
+    // held so the level sticks; MockWebServer otherwise logs every request
+    private static final Logger SERVER_LOGGER = Logger.getLogger(MockWebServer.class.getName());
+
+    private final Map<String, String> options;
+    private final Random random = new Random();
+
+    private final OperationStats keygenStats = new OperationStats("keygen");
+    private final OperationStats enrollStats = new OperationStats("enroll");
+    private final OperationStats allowStats = new OperationStats("allow");
+    private final OperationStats rejectStats = new OperationStats("reject");
+    private final OperationStats unenrollStats = new OperationStats("unenroll");
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SERVER_LOGGER.setLevel(Level.SEVERE);
+        Map<String, String> options = new TreeMap<>(DEFAULTS);
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i].startsWith("--") ? args[i].substring(2) : null;
+            if (name == null || !DEFAULTS.containsKey(name) || i + 1 == args.length) {
+                System.err.println("Unknown or incomplete option " + args[i] + ", expected one of " + DEFAULTS.keySet());
+                System.exit(2);
+            }
+            options.put(name, args[++i]);
+        }
+        new LoadTest(options).run();
+        // pool and connection threads would otherwise linger until they time out
+        System.exit(0);
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    private double doubleOption(String name) {
+        return Double.parseDouble(options.get(name));
+    }
+
+    private void run() throws Exception {
+        MockGuardianServer.Behavior behavior = new MockGuardianServer.Behavior();
+        behavior.latencyMs = intOption("latency");
+        behavior.jitterMs = intOption("jitter");
+        behavior.errorRate = doubleOption("error-rate");
+        behavior.disconnectRate = doubleOption("disconnect-rate");
+
+        MockGuardianServer server = new MockGuardianServer(behavior);
+        server.start();
+        try {
+            // the app hands results to the JS queue; here they are handled where they arrive
+            GuardianExecutors executors = new GuardianExecutors(new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            });
+            executors.setNetworkThreads(intOption("network-threads"));
+            GuardianHttpClient httpClient = new GuardianHttpClient(executors.network());
+            final TransactionClient transactionClient = new TransactionClient(server.getDomain(), httpClient,
+                    executors.network());
+            EnrollmentRepository repository = new EnrollmentRepository(new InMemoryEnrollmentStore(), executors.storage());
+            TransactionResolver resolver = new TransactionResolver(repository, new TransactionResolver.ClientProvider() {
+                @Override
+                public TransactionClient get(String domain) {
+                    return transactionClient;
+                }
+            }, new TransactionDeduplicator(TransactionDeduplicator.DEFAULT_MAX_ENTRIES,
+                    TransactionDeduplicator.DEFAULT_TTL_MS), null);
+            resolver.setDefaultDomain(server.getDomain());
+            WireEnrollmentClient enrollmentClient = new WireEnrollmentClient(server.getDomain(), httpClient.get());
+
+            System.out.println("Options: " + options);
+            List<KeyPair> keyPairs = generateKeys(executors, intOption("devices"));
+            List<GuardianEnrollment> enrollments = enroll(server, executors, enrollmentClient, repository, keyPairs);
+            resolveBurst(server, resolver, enrollments);
+            unenroll(executors, enrollmentClient, repository, enrollments);
+
+            System.out.println();
+            for (OperationStats stats : new OperationStats[]{keygenStats, enrollStats, allowStats, rejectStats, unenrollStats}) {
+                System.out.println(stats.report());
+            }
+            System.out.println();
+            System.out.println("Recorded by guardian-core:");
+            for (GuardianMetrics.Snapshot snapshot : GuardianMetrics.snapshot()) {
+                if (snapshot.count > 0) {
+                    System.out.println(String.format("  %-10s n=%-5d p50<=%7.1fms  p99<=%7.1fms  max=%7.1fms",
+                            snapshot.name, snapshot.count, snapshot.percentileMs(50), snapshot.percentileMs(99),
+                            snapshot.maxNanos / 1e6));
+                }
+            }
+            System.out.println();
+            System.out.println("Server requests: " + new TreeMap<>(server.getRequestCounts()));
+            GuardianExecutors.Stats network = executors.networkStats();
+            System.out.println(String.format("Network pool: %d threads, %d tasks, wait avg %.1fms max %.1fms",
+                    network.threads, network.completed, network.averageWaitMs, network.maxWaitMs));
+        } finally {
+            server.close();
+        }
+    }
+
+    // the app keeps key pairs ready in KeyPairPool; they are made up front here as well
+    private List<KeyPair> generateKeys(GuardianExecutors executors, int count) throws InterruptedException {
+        final List<KeyPair> keyPairs = Collections.synchronizedList(new ArrayList<KeyPair>());
+        final CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            executors.cpu().execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                        generator.initialize(2048);
+                        keyPairs.add(generator.generateKeyPair());
+                        keygenStats.record(start, null);
+                    } catch (Exception e) {
+                        keygenStats.record(start, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        await(done, "key generation");
+        return keyPairs;
+    }
+
+    private List<GuardianEnrollment> enroll(MockGuardianServer server, GuardianExecutors executors,
+                                            final WireEnrollmentClient client, final EnrollmentRepository repository,
+                                            List<KeyPair> keyPairs) throws InterruptedException {
+        final List<GuardianEnrollment> enrollments = Collections.synchronizedList(new ArrayList<GuardianEnrollment>());
+        final CountDownLatch done = new CountDownLatch(keyPairs.size());
+        for (int i = 0; i < keyPairs.size(); i++) {
+            final String ticket = server.newEnrollmentTicket();
+            final KeyPair keyPair = keyPairs.get(i);
+            final String deviceIdentifier = "load-test-device-" + i;
+            final long start = System.nanoTime();
+            executors.network().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        GuardianEnrollment enrollment = client.enroll(ticket, deviceIdentifier, deviceIdentifier,
+                                "push-token-" + deviceIdentifier, keyPair);
+                        repository.save(enrollment);
+                        enrollments.add(enrollment);
+                        enrollStats.record(start, null);
+                    } catch (Exception e) {
+                        enrollStats.record(start, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        await(done, "enroll");
+        return enrollments;
+    }
+
+    private void resolveBurst(MockGuardianServer server, TransactionResolver resolver,
+                              List<GuardianEnrollment> enrollments) throws InterruptedException {
+        if (enrollments.isEmpty()) {
+            System.out.println("No device enrolled, skipping allow/reject");
+            return;
+        }
+        int pushes = intOption("pushes");
+        double duplicateRate = doubleOption("duplicate-rate");
+        List<GuardianNotification> notifications = new ArrayList<>();
+        List<Boolean> decisions = new ArrayList<>();
+        for (int i = 0; i < pushes; i++) {
+            GuardianEnrollment enrollment = enrollments.get(random.nextInt(enrollments.size()));
+            GuardianNotification notification = server.newPush(enrollment.getId());
+            boolean accepted = random.nextBoolean();
+            int deliveries = random.nextDouble() < duplicateRate ? 2 : 1;
+            for (int j = 0; j < deliveries; j++) {
+                notifications.add(notification);
+                decisions.add(accepted);
+            }
+        }
+
+        final CountDownLatch done = new CountDownLatch(notifications.size());
+        final AtomicInteger delivered = new AtomicInteger();
+        for (int i = 0; i < notifications.size(); i++) {
+            final OperationStats stats = decisions.get(i) ? allowStats : rejectStats;
+            final long start = System.nanoTime();
+            try {
+                resolver.resolve(notifications.get(i), decisions.get(i), null, new GuardianCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void response) {
+                        stats.record(start, null);
+                        delivered.incrementAndGet();
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable exception) {
+                        stats.record(start, exception);
+                        done.countDown();
+                    }
+                });
+            } catch (RuntimeException e) {
+                stats.record(start, e);
+                done.countDown();
+            }
+        }
+        await(done, "allow/reject");
+        System.out.println(String.format("Burst: %d pushes, %d deliveries including duplicates, %d answered",
+                pushes, notifications.size(), delivered.get()));
+    }
+
+    private void unenroll(GuardianExecutors executors, final WireEnrollmentClient client,
+                          final EnrollmentRepository repository, List<GuardianEnrollment> enrollments)
+            throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(enrollments.size());
+        for (final GuardianEnrollment enrollment : enrollments) {
+            final long start = System.nanoTime();
+            executors.network().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        client.delete(enrollment);
+                        repository.remove(enrollment.getId());
+                        unenrollStats.record(start, null);
+                    } catch (Exception e) {
+                        unenrollStats.record(start, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        await(done, "unenroll");
+    }
+
+    private void await(CountDownLatch done, String phase) throws InterruptedException {
+        if (!done.await(intOption("timeout"), TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for " + phase + ", " + done.getCount() + " still running");
+        }
+    }
+}
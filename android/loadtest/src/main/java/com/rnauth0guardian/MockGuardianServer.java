@@ -0,0 +1,321 @@
+package com.rnauth0guardian;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.ByteString;
+
+/**
+ * A local stand-in for the Guardian API: enroll, resolve-transaction and device deletion, backed
+ * by in-memory state. Challenge responses are checked against the public key the device
+ * enrolled with, like the real service does.
+ * <p>
+ * Every response is delayed by {@code latencyMs} plus up to {@code jitterMs}. A share of
+ * requests can be failed with a 503 ({@code errorRate}) or by dropping the connection
+ * ({@code disconnectRate}), which the client sees as an {@link IOException}.
+ */
+public class MockGuardianServer implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    // the client adds this for any domain that is not *.guardian.auth0.com
+    private static final String PATH_PREFIX = "/appliance-mfa";
+    private static final String DEVICE_ACCOUNTS = "/api/device-accounts/";
+    private static final long TRANSACTION_TTL_SECONDS = 5 * 60;
+
+    public static final class Behavior {
+        public volatile long latencyMs;
+        public volatile long jitterMs;
+        public volatile double errorRate;
+        public volatile double disconnectRate;
+    }
+
+    private static final class Device {
+        final String id;
+        final String identifier;
+        final String deviceToken;
+        final PublicKey publicKey;
+
+        Device(String id, String identifier, String deviceToken, PublicKey publicKey) {
+            this.id = id;
+            this.identifier = identifier;
+            this.deviceToken = deviceToken;
+            this.publicKey = publicKey;
+        }
+    }
+
+    private static final class Transaction {
+        final String enrollmentId;
+        final String challenge;
+
+        Transaction(String enrollmentId, String challenge) {
+            this.enrollmentId = enrollmentId;
+            this.challenge = challenge;
+        }
+    }
+
+    private final Behavior behavior;
+    private final MockWebServer server = new MockWebServer();
+    private final Random random = new SecureRandom();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    private final Map<String, String> tickets = new ConcurrentHashMap<>();
+    // by enrollment id
+    private final Map<String, Device> devices = new ConcurrentHashMap<>();
+    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+
+    public MockGuardianServer(Behavior behavior) {
+        this.behavior = behavior;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * The domain to pass to the library, e.g. as the one given to {@code initialize}.
+     */
+    public String getDomain() {
+        return "http://" + server.getHostName() + ":" + server.getPort();
+    }
+
+    /**
+     * Requests served so far, by endpoint.
+     */
+    public Map<String, AtomicInteger> getRequestCounts() {
+        return requestCounts;
+    }
+
+    /**
+     * Issues a one-time enrollment ticket, as scanned from the QR code.
+     */
+    public String newEnrollmentTicket() {
+        String ticket = randomToken();
+        tickets.put(ticket, ticket);
+        return ticket;
+    }
+
+    /**
+     * Starts a login for {@code enrollmentId} and returns the push it would receive.
+     */
+    public GuardianNotification newPush(String enrollmentId) {
+        long exp = System.currentTimeMillis() / 1000L + TRANSACTION_TTL_SECONDS;
+        String header = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}");
+        String payload = base64Url("{\"txid\":\"" + randomToken() + "\",\"exp\":" + exp + "}");
+        String transactionToken = header + "." + payload + "." + randomToken();
+        String challenge = randomToken();
+        transactions.put(transactionToken, new Transaction(enrollmentId, challenge));
+        return new GuardianNotification(transactionToken, enrollmentId, challenge, null, null);
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        String path = request.getPath();
+        if (path.startsWith(PATH_PREFIX)) {
+            path = path.substring(PATH_PREFIX.length());
+        }
+        String endpoint = request.getMethod() + " " + (path.startsWith(DEVICE_ACCOUNTS) ? DEVICE_ACCOUNTS + "{id}" : path);
+        count(endpoint);
+
+        if ("HEAD".equals(request.getMethod())) {
+            return new MockResponse();
+        }
+        double roll = random.nextDouble();
+        if (roll < behavior.disconnectRate) {
+            return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        }
+        MockResponse response;
+        if (roll < behavior.disconnectRate + behavior.errorRate) {
+            response = error(503, "service_unavailable", "Injected failure");
+        } else {
+            try {
+                response = route(request, path);
+            } catch (JSONException | GeneralSecurityException | RuntimeException e) {
+                response = error(400, "invalid_body", String.valueOf(e.getMessage()));
+            }
+        }
+        long delay = behavior.latencyMs;
+        if (behavior.jitterMs > 0) {
+            delay += (long) (random.nextDouble() * behavior.jitterMs);
+        }
+        return response.setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+    }
+
+    private MockResponse route(RecordedRequest request, String path) throws JSONException, GeneralSecurityException {
+        if ("POST".equals(request.getMethod()) && "/api/enroll".equals(path)) {
+            return enroll(request);
+        }
+        if ("POST".equals(request.getMethod()) && "/api/resolve-transaction".equals(path)) {
+            return resolveTransaction(request);
+        }
+        if ("DELETE".equals(request.getMethod()) && path.startsWith(DEVICE_ACCOUNTS)) {
+            return deleteDevice(request, path.substring(DEVICE_ACCOUNTS.length()));
+        }
+        return error(404, "not_found", "No such endpoint: " + path);
+    }
+
+    private MockResponse enroll(RecordedRequest request) throws JSONException, GeneralSecurityException {
+        String authorization = request.getHeader("Authorization");
+        String ticket = authorization != null && authorization.startsWith("Ticket id=\"")
+                ? authorization.substring(11, authorization.length() - 1) : null;
+        if (ticket == null || tickets.remove(ticket) == null) {
+            return error(401, "invalid_ticket", "Invalid enrollment ticket");
+        }
+        JSONObject body = new JSONObject(request.getBody().readUtf8());
+        JSONObject key = body.getJSONObject("public_key");
+        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                new BigInteger(1, decodeBase64(key.getString("n"))),
+                new BigInteger(1, decodeBase64(key.getString("e")))));
+
+        String id = "dev_" + nextId.incrementAndGet();
+        Device device = new Device(id, body.getString("identifier"), randomToken(), publicKey);
+        devices.put(id, device);
+
+        JSONObject totp = new JSONObject()
+                .put("secret", randomBase32(32))
+                .put("algorithm", "sha1")
+                .put("digits", 6)
+                .put("period", 30);
+        JSONObject response = new JSONObject()
+                .put("id", id)
+                .put("url", getDomain())
+                .put("issuer", "mock")
+                .put("user_id", "auth0|" + id)
+                .put("token", device.deviceToken)
+                .put("totp", totp);
+        return json(200, response);
+    }
+
+    private MockResponse resolveTransaction(RecordedRequest request) throws JSONException, GeneralSecurityException {
+        String transactionToken = bearer(request);
+        Transaction transaction = transactionToken != null ? transactions.get(transactionToken) : null;
+        if (transaction == null) {
+            return error(404, "transaction_not_found", "Transaction not found or already resolved");
+        }
+        Device device = devices.get(transaction.enrollmentId);
+        if (device == null) {
+            return error(404, "device_account_not_found", "Device account not found");
+        }
+
+        String[] jwt = new JSONObject(request.getBody().readUtf8()).getString("challenge_response").split("\\.");
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(device.publicKey);
+        verifier.update((jwt[0] + "." + jwt[1]).getBytes(UTF_8));
+        JSONObject claims = new JSONObject(new String(decodeBase64(jwt[1]), UTF_8));
+        if (!verifier.verify(decodeBase64(jwt[2]))
+                || !transaction.challenge.equals(claims.getString("sub"))
+                || !device.identifier.equals(claims.getString("iss"))) {
+            return error(401, "invalid_challenge_response", "Challenge response does not verify");
+        }
+        if (transactions.remove(transactionToken) == null) {
+            // a concurrent duplicate got there first
+            return error(404, "transaction_not_found", "Transaction not found or already resolved");
+        }
+        return new MockResponse().setResponseCode(204);
+    }
+
+    private MockResponse deleteDevice(RecordedRequest request, String id) {
+        Device device = devices.get(id);
+        if (device == null) {
+            return error(404, "device_account_not_found", "Device account not found");
+        }
+        if (!device.deviceToken.equals(bearer(request))) {
+            return error(401, "invalid_token", "Invalid device token");
+        }
+        devices.remove(id);
+        return new MockResponse().setResponseCode(204);
+    }
+
+    private void count(String endpoint) {
+        AtomicInteger counter = requestCounts.get(endpoint);
+        if (counter == null) {
+            AtomicInteger created = new AtomicInteger();
+            counter = requestCounts.putIfAbsent(endpoint, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    private static String bearer(RecordedRequest request) {
+        String authorization = request.getHeader("Authorization");
+        return authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+    }
+
+    private static MockResponse error(int status, String errorCode, String message) {
+        try {
+            return json(status, new JSONObject()
+                    .put("statusCode", status)
+                    .put("errorCode", errorCode)
+                    .put("message", message));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MockResponse json(int status, JSONObject body) {
+        return new MockResponse()
+                .setResponseCode(status)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body.toString());
+    }
+
+    private static byte[] decodeBase64(String encoded) {
+        ByteString decoded = ByteString.decodeBase64(encoded);
+        if (decoded == null) {
+            throw new IllegalArgumentException("Invalid Base64");
+        }
+        return decoded.toByteArray();
+    }
+
+    private static String base64Url(String json) {
+        return ByteString.encodeUtf8(json).base64Url().replace("=", "");
+    }
+
+    private String randomToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return ByteString.of(bytes).hex();
+    }
+
+    private String randomBase32(int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
+        StringBuilder secret = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            secret.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return secret.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.rnauth0guardian;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one kind of operation during a load test run.
+ */
+public class OperationStats {
+
+    private final String name;
+
+    // guarded by this
+    private long[] latencies = new long[64];
+    private int count;
+    private int failures;
+    private final Map<String, Integer> failuresByType = new TreeMap<>();
+    private long firstStart = Long.MAX_VALUE;
+    private long lastEnd = Long.MIN_VALUE;
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one operation that started at {@code startNanos} and ended now. {@code error} is
+     * {@code null} if it succeeded.
+     */
+    public synchronized void record(long startNanos, Throwable error) {
+        long end = System.nanoTime();
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = end - startNanos;
+        firstStart = Math.min(firstStart, startNanos);
+        lastEnd = Math.max(lastEnd, end);
+        if (error != null) {
+            failures++;
+            String type = failureType(error);
+            Integer seen = failuresByType.get(type);
+            failuresByType.put(type, seen == null ? 1 : seen + 1);
+        }
+    }
+
+    public synchronized String report() {
+        if (count == 0) {
+            return String.format("%-10s no operations", name);
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = (lastEnd - firstStart) / 1e9;
+        StringBuilder report = new StringBuilder(String.format(
+                "%-10s n=%-5d ok=%-5d failed=%-5d (%5.1f%%)  p50=%7.1fms  p99=%7.1fms  max=%7.1fms  %8.1f ops/s",
+                name, count, count - failures, failures, 100.0 * failures / count,
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 99)), millis(sorted[count - 1]),
+                seconds > 0 ? count / seconds : 0));
+        for (Map.Entry<String, Integer> failure : failuresByType.entrySet()) {
+            report.append(String.format("%n%12s%-36s %d", "", failure.getKey(), failure.getValue()));
+        }
+        return report.toString();
+    }
+
+    // nearest rank
+    private static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String failureType(Throwable error) {
+        if (error instanceof TransactionException) {
+            TransactionException transactionError = (TransactionException) error;
+            return transactionError.getStatusCode() + " " + transactionError.getErrorCode();
+        }
+        return error.getClass().getSimpleName();
+    }
+}
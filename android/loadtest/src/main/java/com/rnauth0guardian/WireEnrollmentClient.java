@@ -0,0 +1,98 @@
+package com.rnauth0guardian;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ByteString;
+
+/**
+ * Enroll and delete as the Guardian Android SDK sends them. The library itself goes through the
+ * SDK, which needs a device, so the load test issues the same requests directly.
+ */
+public class WireEnrollmentClient {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final String domain;
+    private final String baseUrl;
+    private final OkHttpClient httpClient;
+
+    public WireEnrollmentClient(String domain, OkHttpClient httpClient) {
+        this.domain = domain;
+        this.baseUrl = TransactionClient.baseUrl(domain);
+        this.httpClient = httpClient;
+    }
+
+    public GuardianEnrollment enroll(String ticket, String deviceIdentifier, String deviceName,
+                                     String pushToken, KeyPair keyPair)
+            throws IOException, JSONException, TransactionException {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        JSONObject body = new JSONObject()
+                .put("identifier", deviceIdentifier)
+                .put("name", deviceName)
+                .put("push_credentials", new JSONObject()
+                        .put("service", "GCM")
+                        .put("token", pushToken))
+                .put("public_key", new JSONObject()
+                        .put("kty", "RSA")
+                        .put("alg", "RS256")
+                        .put("use", "sig")
+                        .put("e", base64Url(publicKey.getPublicExponent()))
+                        .put("n", base64Url(publicKey.getModulus())));
+        Request request = new Request.Builder()
+                .url(baseUrl + "api/enroll")
+                .header("Authorization", "Ticket id=\"" + ticket + "\"")
+                .post(RequestBody.create(JSON, body.toString()))
+                .build();
+
+        JSONObject response = new JSONObject(send(request));
+        JSONObject totp = response.getJSONObject("totp");
+        return new GuardianEnrollment(response.getString("id"), response.getString("user_id"),
+                totp.getInt("period"), totp.getInt("digits"), totp.getString("algorithm"),
+                totp.getString("secret"), deviceIdentifier, deviceName, pushToken,
+                response.getString("token"), keyPair.getPrivate().getEncoded(), domain);
+    }
+
+    public void delete(GuardianEnrollment enrollment) throws IOException, TransactionException {
+        Request request = new Request.Builder()
+                .url(baseUrl + "api/device-accounts/" + enrollment.getId())
+                .header("Authorization", "Bearer " + enrollment.getDeviceToken())
+                .delete()
+                .build();
+        send(request);
+    }
+
+    private String send(Request request) throws IOException, TransactionException {
+        Response response = httpClient.newCall(request).execute();
+        try {
+            ResponseBody responseBody = response.body();
+            String content = responseBody != null ? responseBody.string() : "";
+            if (!response.isSuccessful()) {
+                throw TransactionException.fromResponse(response.code(), content);
+            }
+            return content;
+        } finally {
+            response.close();
+        }
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // drop the sign byte BigInteger adds to positive values with the top bit set
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = ByteString.of(bytes, 1, bytes.length - 1).toByteArray();
+        }
+        return ByteString.of(bytes).base64Url().replace("=", "");
+    }
+}
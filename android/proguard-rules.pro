@@ -0,0 +1,6 @@
+# Applied to apps that shrink with R8 or ProGuard. Verbose and debug logging is compiled out
+# of their release builds, along with building the messages.
+-assumenosideeffects class com.rnauth0guardian.GuardianLog {
+    public static void v(...);
+    public static void d(...);
+}
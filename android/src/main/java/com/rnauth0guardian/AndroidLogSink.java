@@ -0,0 +1,22 @@
+package com.rnauth0guardian;
+
+import android.util.Log;
+
+/**
+ * Sends the core's {@link GuardianLog} messages to logcat.
+ */
+public final class AndroidLogSink implements GuardianLog.Sink {
+
+    public static final AndroidLogSink INSTANCE = new AndroidLogSink();
+
+    private AndroidLogSink() {
+    }
+
+    @Override
+    public void println(int priority, String tag, String message, Throwable error) {
+        if (error != null) {
+            message = message + '\n' + Log.getStackTraceString(error);
+        }
+        Log.println(priority, tag, message);
+    }
+}
@@ -1,12 +1,9 @@
 package com.rnauth0guardian;
 
-import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 
-import java.util.Map;
-
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONException;
@@ -95,34 +92,6 @@ public class ArrayUtil {
     }
 
     public static WritableArray toWritableArray(Object[] array) {
-        WritableArray writableArray = Arguments.createArray();
-
-        for (int i = 0; i < array.length; i++) {
-            Object value = array[i];
-
-            if (value == null) {
-                writableArray.pushNull();
-            }
-            if (value instanceof Boolean) {
-                writableArray.pushBoolean((Boolean) value);
-            }
-            if (value instanceof Double) {
-                writableArray.pushDouble((Double) value);
-            }
-            if (value instanceof Integer) {
-                writableArray.pushInt((Integer) value);
-            }
-            if (value instanceof String) {
-                writableArray.pushString((String) value);
-            }
-            if (value instanceof Map) {
-                writableArray.pushMap(MapUtil.toWritableMap((Map<String, Object>) value));
-            }
-            if (value.getClass().isArray()) {
-                writableArray.pushArray(ArrayUtil.toWritableArray((Object[]) value));
-            }
-        }
-
-        return writableArray;
+        return WritableConverter.toWritableArray(array);
     }
-}
\ No newline at end of file
+}
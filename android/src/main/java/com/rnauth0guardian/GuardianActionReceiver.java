@@ -0,0 +1,115 @@
+package com.rnauth0guardian;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+
+/**
+ * Handles "Allow" / "Reject" actions on a Guardian push notification natively, so answering a
+ * push does not have to start the JS bundle. Build the actions with {@link #allowIntent} and
+ * {@link #rejectIntent}; the outcome is reported to JS through
+ * {@code consumeHeadlessResults()}.
+ */
+public class GuardianActionReceiver extends BroadcastReceiver {
+
+    private static final String TAG = GuardianActionReceiver.class.getName();
+
+    public static final String ACTION_ALLOW = "com.rnauth0guardian.action.ALLOW";
+    public static final String ACTION_REJECT = "com.rnauth0guardian.action.REJECT";
+
+    // the notification's payload keys, as a Bundle
+    public static final String EXTRA_NOTIFICATION = "com.rnauth0guardian.extra.NOTIFICATION";
+    public static final String EXTRA_REASON = "com.rnauth0guardian.extra.REASON";
+    // id of the shown notification, cancelled once the decision is delivered or queued
+    public static final String EXTRA_NOTIFICATION_ID = "com.rnauth0guardian.extra.NOTIFICATION_ID";
+
+    public static PendingIntent allowIntent(Context context, GuardianNotification notification, int notificationId) {
+        return pendingIntent(context, ACTION_ALLOW, notification, notificationId);
+    }
+
+    public static PendingIntent rejectIntent(Context context, GuardianNotification notification, int notificationId) {
+        return pendingIntent(context, ACTION_REJECT, notification, notificationId);
+    }
+
+    private static PendingIntent pendingIntent(Context context, String action, GuardianNotification notification,
+                                               int notificationId) {
+        Intent intent = new Intent(context, GuardianActionReceiver.class)
+                .setAction(action)
+                .putExtra(EXTRA_NOTIFICATION, toBundle(notification))
+                .putExtra(EXTRA_NOTIFICATION_ID, notificationId);
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        // the request code keeps the allow and reject intents of one notification apart
+        int requestCode = 31 * notificationId + (ACTION_ALLOW.equals(action) ? 1 : 0);
+        return PendingIntent.getBroadcast(context, requestCode, intent, flags);
+    }
+
+    private static Bundle toBundle(GuardianNotification notification) {
+        Bundle payload = new Bundle();
+        payload.putString(NotificationDecoder.TRANSACTION_TOKEN, notification.getTransactionToken());
+        payload.putString(NotificationDecoder.ENROLLMENT_ID, notification.getEnrollmentId());
+        payload.putString(NotificationDecoder.CHALLENGE, notification.getChallenge());
+        payload.putString(NotificationDecoder.HOSTNAME, notification.getHostname());
+        payload.putString(NotificationDecoder.DATE, notification.getDate());
+        return payload;
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!ACTION_ALLOW.equals(action) && !ACTION_REJECT.equals(action)) {
+            return;
+        }
+        // the module may not have run in this process
+        GuardianLog.setSink(AndroidLogSink.INSTANCE);
+        final Bundle payload = intent.getBundleExtra(EXTRA_NOTIFICATION);
+        GuardianNotification notification;
+        try {
+            notification = NotificationDecoder.decode(new NotificationDecoder.Payload() {
+                @Override
+                public String getString(String key) {
+                    return payload.getString(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            // also covers a missing bundle
+            GuardianLog.e(TAG, "Missing notification in {}", action, e);
+            return;
+        }
+
+        final int notificationId = intent.getIntExtra(EXTRA_NOTIFICATION_ID, -1);
+        final Context appContext = context.getApplicationContext();
+        // keep the process alive until the decision is delivered or safely queued
+        final PendingResult pendingResult = goAsync();
+        HeadlessGuardian.get(context).resolve(notification, ACTION_ALLOW.equals(action),
+                intent.getStringExtra(EXTRA_REASON), new GuardianCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void response) {
+                        cancelNotification(appContext, notificationId);
+                        pendingResult.finish();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable exception) {
+                        // the notification stays, so the user can answer it again
+                        pendingResult.finish();
+                    }
+                });
+    }
+
+    private static void cancelNotification(Context context, int notificationId) {
+        if (notificationId == -1) {
+            return;
+        }
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager != null) {
+            manager.cancel(notificationId);
+        }
+    }
+}
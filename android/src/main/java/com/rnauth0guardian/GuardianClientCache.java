@@ -0,0 +1,124 @@
+package com.rnauth0guardian;
+
+import android.net.Uri;
+
+import com.auth0.android.guardian.sdk.Guardian;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * One {@link Guardian} and {@link TransactionClient} per tenant domain, so an app that serves
+ * several Auth0 tenants does not have to re-initialize when it switches between them.
+ * <p>
+ * Clients are created on first use and then reused. The cache is an LRU bounded to
+ * {@code maxEntries}, and clients that have not been used for {@code idleTimeoutMillis} are
+ * dropped the next time the cache is accessed. All of them share one HTTP client, so evicting a
+ * domain does not close connections another domain is using.
+ */
+public class GuardianClientCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 8;
+    static final long DEFAULT_IDLE_TIMEOUT_MS = 30 * 60 * 1000;
+
+    public static final class Clients {
+        public final String domain;
+        public final Guardian guardian;
+        public final TransactionClient transactionClient;
+
+        // guarded by the cache
+        long lastUsed;
+
+        Clients(String domain, Guardian guardian, TransactionClient transactionClient) {
+            this.domain = domain;
+            this.guardian = guardian;
+            this.transactionClient = transactionClient;
+        }
+    }
+
+    private final GuardianHttpClient httpClient;
+    private final Executor networkExecutor;
+    private final int maxEntries;
+    private final long idleTimeoutMillis;
+
+    // guarded by this
+    private final LinkedHashMap<String, Clients> entries;
+
+    public GuardianClientCache(GuardianHttpClient httpClient, Executor networkExecutor, int maxEntries,
+                               long idleTimeoutMillis) {
+        this.httpClient = httpClient;
+        this.networkExecutor = networkExecutor;
+        this.maxEntries = maxEntries;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.entries = new LinkedHashMap<String, Clients>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Clients> eldest) {
+                return size() > GuardianClientCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the clients for {@code domain}, creating them if needed.
+     */
+    public synchronized Clients get(String domain) {
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+        String key = normalize(domain);
+        Clients clients = entries.get(key);
+        if (clients == null) {
+            Guardian.Builder builder = new Guardian.Builder();
+            // domain() always prepends https://, so a kept scheme has to go through url()
+            if (key.contains("://")) {
+                builder.url(Uri.parse(key));
+            } else {
+                builder.domain(key);
+            }
+            Guardian guardian = builder.build();
+            clients = new Clients(key, guardian, new TransactionClient(key, httpClient, networkExecutor));
+            entries.put(key, clients);
+        }
+        clients.lastUsed = now;
+        return clients;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // the access-ordered map keeps the least recently used entries first
+    private void evictIdle(long now) {
+        Iterator<Clients> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastUsed < idleTimeoutMillis) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Domains arrive as configured by the app, as the {@code sh} host of a push, or as the
+     * {@code base_url} of an enrollment URI; they all map to the same bare host name.
+     */
+    static String normalize(String domain) {
+        String host = domain.trim().toLowerCase(Locale.US);
+        // https is implied; any other scheme (a local test server) is kept
+        String scheme = "";
+        int separator = host.indexOf("://");
+        if (separator >= 0) {
+            if (!host.startsWith("https://")) {
+                scheme = host.substring(0, separator + 3);
+            }
+            host = host.substring(separator + 3);
+        }
+        int slash = host.indexOf('/');
+        if (slash >= 0) {
+            host = host.substring(0, slash);
+        }
+        return scheme + host;
+    }
+}
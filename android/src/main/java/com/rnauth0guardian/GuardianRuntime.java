@@ -0,0 +1,141 @@
+package com.rnauth0guardian;
+
+import android.content.Context;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+/**
+ * The state the React Native module and the headless notification actions share: thread pools,
+ * the HTTP stack, the stored enrollments, and the resolver with its deduplicator and outbox.
+ * The key pair pool lives here too, so the keys it has ready survive a reload of the JS bundle.
+ * Both run in the same process and would otherwise write the same preferences from two
+ * repositories, and a decision made from a notification would bypass the outbox and the
+ * deduplication of the same decision made from JS.
+ * <p>
+ * One instance per process, created on first use. Results are handed back on the executor the
+ * live module installs with {@link #setCallbackExecutor}, or where they are produced while there
+ * is none.
+ */
+public final class GuardianRuntime {
+
+    private static final String TAG = GuardianRuntime.class.getName();
+
+    private static GuardianRuntime instance;
+
+    final GuardianExecutors executors;
+    final GuardianHttpClient httpClient;
+    final GuardianClientCache clientCache;
+    final EnrollmentRepository enrollmentRepository;
+    final DecisionOutbox outbox;
+    final TransactionResolver resolver;
+    final HeadlessResults headlessResults;
+    final KeyPairPool keyPairPool;
+
+    private volatile Executor callbackExecutor;
+    private volatile DecisionOutbox.Listener outboxListener;
+
+    public static synchronized GuardianRuntime get(Context context) {
+        if (instance == null) {
+            instance = new GuardianRuntime(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GuardianRuntime(Context context) {
+        GuardianLog.setSink(AndroidLogSink.INSTANCE);
+        executors = new GuardianExecutors(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                Executor current = callbackExecutor;
+                if (current != null) {
+                    current.execute(command);
+                } else {
+                    command.run();
+                }
+            }
+        });
+        httpClient = new GuardianHttpClient(executors.network());
+        clientCache = new GuardianClientCache(httpClient, executors.network(),
+                GuardianClientCache.DEFAULT_MAX_ENTRIES, GuardianClientCache.DEFAULT_IDLE_TIMEOUT_MS);
+        enrollmentRepository = new EnrollmentRepository(new SharedPreferencesEnrollmentStore(context),
+                executors.storage());
+        outbox = new DecisionOutbox(context.getFilesDir(), new DecisionOutbox.Sender() {
+            @Override
+            public void send(DecisionOutbox.Decision decision) throws Exception {
+                if (!enrollmentRepository.isLoaded()) {
+                    // the enrollment is not known yet rather than gone; try again later
+                    throw new IOException("Enrollments not loaded yet");
+                }
+                TransactionRequest request;
+                try {
+                    request = resolver.prepare(decision.notification, decision.accepted, decision.reason);
+                } catch (IllegalStateException e) {
+                    if ("NOT_INITIALIZED".equals(e.getMessage())) {
+                        // nothing names the tenant until JS calls initialize
+                        throw new IOException("Not initialized yet", e);
+                    }
+                    throw e;
+                }
+                request.execute();
+            }
+        }, new DecisionOutbox.Listener() {
+            @Override
+            public void onDelivered(DecisionOutbox.Decision decision) {
+                DecisionOutbox.Listener current = outboxListener;
+                if (current != null) {
+                    current.onDelivered(decision);
+                }
+            }
+
+            @Override
+            public void onDropped(DecisionOutbox.Decision decision, String reason, Throwable error) {
+                DecisionOutbox.Listener current = outboxListener;
+                if (current != null) {
+                    current.onDropped(decision, reason, error);
+                } else {
+                    GuardianLog.w(TAG, "Dropped a queued decision: {}", reason);
+                }
+            }
+        });
+        resolver = new TransactionResolver(enrollmentRepository, new TransactionResolver.ClientProvider() {
+            @Override
+            public TransactionClient get(String domain) {
+                return clientCache.get(domain).transactionClient;
+            }
+        }, new TransactionDeduplicator(TransactionDeduplicator.DEFAULT_MAX_ENTRIES,
+                TransactionDeduplicator.DEFAULT_TTL_MS), outbox);
+        headlessResults = new HeadlessResults(context);
+        // filled once JS calls initialize
+        keyPairPool = new KeyPairPool(KeyPairPool.DEFAULT_CAPACITY, executors.cpu());
+        // decisions queued by an earlier process are retried without waiting for JS, once the
+        // enrollments they were made for are read
+        enrollmentRepository.load(new GuardianCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer response) {
+                outbox.start();
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                GuardianLog.e(TAG, "Error loading enrollments", exception);
+                outbox.start();
+            }
+        });
+    }
+
+    /**
+     * Where {@link GuardianExecutors#callbacks()} runs; {@code null} runs callbacks where they are
+     * produced.
+     */
+    public void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+    /**
+     * Told about queued decisions that were delivered or dropped; may be {@code null}.
+     */
+    public void setOutboxListener(DecisionOutbox.Listener listener) {
+        outboxListener = listener;
+    }
+}
@@ -0,0 +1,120 @@
+package com.rnauth0guardian;
+
+import android.content.Context;
+
+import java.io.IOException;
+
+/**
+ * Resolves Guardian transactions without the React Native runtime, e.g. from a notification
+ * action while the app is not running. Stored enrollments are loaded on the storage thread if
+ * JS has not loaded them, the challenge is signed and sent natively, and the outcome is recorded in
+ * {@link HeadlessResults} for JS to pick up the next time it connects.
+ * <p>
+ * Decisions go through the same {@link GuardianRuntime} as the module's, so one made here and
+ * the same one made from JS share a request, and one that fails for lack of network is queued
+ * in the outbox.
+ */
+public final class HeadlessGuardian {
+
+    private static final String TAG = HeadlessGuardian.class.getName();
+
+    private static HeadlessGuardian instance;
+
+    private final GuardianRuntime runtime;
+
+    public static synchronized HeadlessGuardian get(Context context) {
+        if (instance == null) {
+            instance = new HeadlessGuardian(GuardianRuntime.get(context));
+        }
+        return instance;
+    }
+
+    private HeadlessGuardian(GuardianRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    /**
+     * Sends the decision in the background and calls back once its outcome is recorded: with
+     * success if the decision was delivered, or queued in the outbox and written to disk, and
+     * with the error otherwise. There is no initialize here, so the tenant must come from the
+     * enrollment or the push, unless JS initialized the module in this process.
+     */
+    public void resolve(final GuardianNotification notification, final boolean accepted,
+                        final String reason, final GuardianCallback<Void> done) {
+        // the enrollment may not have been read from disk yet in a process started for the push
+        runtime.enrollmentRepository.load(new GuardianCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer response) {
+                runtime.executors.network().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        send(notification, accepted, reason, done);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Throwable exception) {
+                GuardianLog.e(TAG, "{} FAILED!", accepted ? "ALLOW" : "REJECT", exception);
+                finish(notification, accepted, exception, done);
+            }
+        });
+    }
+
+    private void send(final GuardianNotification notification, final boolean accepted, final String reason,
+                      final GuardianCallback<Void> done) {
+        GuardianCallback<Void> callback = new GuardianCallback<Void>() {
+            @Override
+            public void onSuccess(Void response) {
+                finish(notification, accepted, null, done);
+            }
+
+            @Override
+            public void onFailure(final Throwable exception) {
+                GuardianLog.e(TAG, "{} FAILED!", accepted ? "ALLOW" : "REJECT", exception);
+                if (!(exception instanceof IOException)) {
+                    finish(notification, accepted, exception, done);
+                    return;
+                }
+                // the resolver queued it; the process may end once it is on disk
+                runtime.outbox.flush(new GuardianCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void response) {
+                        record(notification, accepted, exception);
+                        done.onSuccess(null);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable writeError) {
+                        finish(notification, accepted,
+                                new IllegalStateException("Could not queue decision", writeError), done);
+                    }
+                });
+            }
+        };
+        try {
+            runtime.resolver.resolve(notification, accepted, reason, callback);
+        } catch (RuntimeException e) {
+            callback.onFailure(e);
+        }
+    }
+
+    private void finish(GuardianNotification notification, boolean accepted, Throwable error,
+                        GuardianCallback<Void> done) {
+        record(notification, accepted, error);
+        if (error == null) {
+            done.onSuccess(null);
+        } else {
+            done.onFailure(error);
+        }
+    }
+
+    private void record(GuardianNotification notification, boolean accepted, Throwable error) {
+        try {
+            runtime.headlessResults.add(notification, accepted, error);
+        } catch (RuntimeException e) {
+            // the decision itself is settled; losing its report must not keep the receiver open
+            GuardianLog.e(TAG, "Error recording headless result", e);
+        }
+    }
+}
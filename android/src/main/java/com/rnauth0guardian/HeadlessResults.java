@@ -0,0 +1,113 @@
+package com.rnauth0guardian;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Outcomes of decisions made by {@link HeadlessGuardian} while JS was not running. They are kept
+ * in preferences until JS takes them with {@link #drain()}, and a live module is told about each
+ * new one through the {@link Listener}.
+ */
+public class HeadlessResults {
+
+    private static final String TAG = HeadlessResults.class.getName();
+
+    private static final String PREFS_NAME = "rnauth0guardian-headless";
+    private static final String RESULTS = "RESULTS";
+    // oldest results are dropped beyond this
+    private static final int MAX_RESULTS = 32;
+
+    // guards the read-modify-write of the stored results
+    private static final Object LOCK = new Object();
+    private static volatile Listener listener;
+
+    public interface Listener {
+        void onResult(JSONObject result);
+    }
+
+    private final Context context;
+
+    public HeadlessResults(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static void setListener(Listener listener) {
+        HeadlessResults.listener = listener;
+    }
+
+    public void add(GuardianNotification notification, boolean accepted, Throwable error) {
+        JSONObject result = new JSONObject();
+        try {
+            result.put("transactionToken", notification.getTransactionToken());
+            result.put("enrollmentId", notification.getEnrollmentId());
+            result.put("accepted", accepted);
+            result.put("success", error == null);
+            if (error != null) {
+                result.put("error", error.getMessage());
+                if (error instanceof TransactionException) {
+                    result.put("code", ((TransactionException) error).getErrorCode());
+                } else if (error instanceof IOException) {
+                    // queued in the outbox, which reports the final outcome
+                    result.put("code", RNAuth0GuardianModule.DECISION_QUEUED);
+                }
+            }
+            result.put("time", System.currentTimeMillis());
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+
+        synchronized (LOCK) {
+            JSONArray results = read();
+            JSONArray kept = new JSONArray();
+            for (int i = Math.max(0, results.length() - (MAX_RESULTS - 1)); i < results.length(); i++) {
+                kept.put(results.opt(i));
+            }
+            kept.put(result);
+            // commit, not apply: the process may be gone right after the receiver finishes
+            prefs().edit().putString(RESULTS, kept.toString()).commit();
+        }
+
+        Listener current = listener;
+        if (current != null) {
+            current.onResult(result);
+        }
+    }
+
+    /**
+     * Returns every stored result, oldest first, and forgets them.
+     */
+    public JSONArray drain() {
+        synchronized (LOCK) {
+            JSONArray results = read();
+            if (results.length() > 0) {
+                prefs().edit().remove(RESULTS).commit();
+            }
+            return results;
+        }
+    }
+
+    private JSONArray read() {
+        String stored = prefs().getString(RESULTS, null);
+        if (stored == null) {
+            return new JSONArray();
+        }
+        try {
+            return new JSONArray(stored);
+        } catch (JSONException e) {
+            GuardianLog.e(TAG, "Dropping unreadable headless results", e);
+            return new JSONArray();
+        }
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,273 @@
+package com.rnauth0guardian;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+
+/**
+ * Streaming JSON conversions for bridge values. Unlike {@link MapUtil#toJSONObject(ReadableMap)}
+ * and {@link ArrayUtil#toJSONArray(ReadableArray)} no intermediate {@code org.json} tree is
+ * built: values are written to the output as they are read, and parsed JSON goes straight
+ * into the writable map.
+ */
+public final class JsonUtil {
+
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilderWriter> BUFFER = new ThreadLocal<StringBuilderWriter>() {
+        @Override
+        protected StringBuilderWriter initialValue() {
+            return new StringBuilderWriter();
+        }
+    };
+
+    private JsonUtil() {
+    }
+
+    public static String toJSONString(ReadableMap readableMap) throws IOException {
+        StringBuilderWriter buffer = BUFFER.get();
+        buffer.reset();
+        write(readableMap, buffer);
+        return buffer.toString();
+    }
+
+    public static String toJSONString(ReadableArray readableArray) throws IOException {
+        StringBuilderWriter buffer = BUFFER.get();
+        buffer.reset();
+        write(readableArray, buffer);
+        return buffer.toString();
+    }
+
+    public static void write(ReadableMap readableMap, Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writeMap(readableMap, writer);
+        writer.flush();
+    }
+
+    public static void write(ReadableArray readableArray, Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writeArray(readableArray, writer);
+        writer.flush();
+    }
+
+    public static WritableMap toWritableMap(String json) throws IOException {
+        return toWritableMap(new StringReader(json));
+    }
+
+    public static WritableMap toWritableMap(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            return readMap(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public static WritableArray toWritableArray(String json) throws IOException {
+        return toWritableArray(new StringReader(json));
+    }
+
+    public static WritableArray toWritableArray(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        try {
+            return readArray(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeMap(ReadableMap readableMap, JsonWriter writer) throws IOException {
+        writer.beginObject();
+        ReadableMapKeySetIterator iterator = readableMap.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String key = iterator.nextKey();
+            writer.name(key);
+
+            switch (readableMap.getType(key)) {
+                case Null:
+                    writer.nullValue();
+                    break;
+                case Boolean:
+                    writer.value(readableMap.getBoolean(key));
+                    break;
+                case Number:
+                    writeNumber(readableMap.getDouble(key), writer);
+                    break;
+                case String:
+                    writer.value(readableMap.getString(key));
+                    break;
+                case Map:
+                    writeMap(readableMap.getMap(key), writer);
+                    break;
+                case Array:
+                    writeArray(readableMap.getArray(key), writer);
+                    break;
+            }
+        }
+        writer.endObject();
+    }
+
+    private static void writeArray(ReadableArray readableArray, JsonWriter writer) throws IOException {
+        writer.beginArray();
+        for (int i = 0; i < readableArray.size(); i++) {
+            switch (readableArray.getType(i)) {
+                case Null:
+                    writer.nullValue();
+                    break;
+                case Boolean:
+                    writer.value(readableArray.getBoolean(i));
+                    break;
+                case Number:
+                    writeNumber(readableArray.getDouble(i), writer);
+                    break;
+                case String:
+                    writer.value(readableArray.getString(i));
+                    break;
+                case Map:
+                    writeMap(readableArray.getMap(i), writer);
+                    break;
+                case Array:
+                    writeArray(readableArray.getArray(i), writer);
+                    break;
+            }
+        }
+        writer.endArray();
+    }
+
+    // the bridge hands every number over as a double; write whole numbers without ".0"
+    private static void writeNumber(double value, JsonWriter writer) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // not representable in JSON, and JsonWriter throws on them; JSON.stringify writes null
+            writer.nullValue();
+            return;
+        }
+        long whole = (long) value;
+        if (whole == value) {
+            writer.value(whole);
+        } else {
+            writer.value(value);
+        }
+    }
+
+    private static WritableMap readMap(JsonReader reader) throws IOException {
+        WritableMap map = Arguments.createMap();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            switch (reader.peek()) {
+                case NULL:
+                    reader.nextNull();
+                    map.putNull(key);
+                    break;
+                case BOOLEAN:
+                    map.putBoolean(key, reader.nextBoolean());
+                    break;
+                case NUMBER:
+                    map.putDouble(key, reader.nextDouble());
+                    break;
+                case STRING:
+                    map.putString(key, reader.nextString());
+                    break;
+                case BEGIN_OBJECT:
+                    map.putMap(key, readMap(reader));
+                    break;
+                case BEGIN_ARRAY:
+                    map.putArray(key, readArray(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return map;
+    }
+
+    private static WritableArray readArray(JsonReader reader) throws IOException {
+        WritableArray array = Arguments.createArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            switch (reader.peek()) {
+                case NULL:
+                    reader.nextNull();
+                    array.pushNull();
+                    break;
+                case BOOLEAN:
+                    array.pushBoolean(reader.nextBoolean());
+                    break;
+                case NUMBER:
+                    array.pushDouble(reader.nextDouble());
+                    break;
+                case STRING:
+                    array.pushString(reader.nextString());
+                    break;
+                case BEGIN_OBJECT:
+                    array.pushMap(readMap(reader));
+                    break;
+                case BEGIN_ARRAY:
+                    array.pushArray(readArray(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endArray();
+        return array;
+    }
+
+    /**
+     * A {@link Writer} over a {@link StringBuilder} that is reused between conversions on the
+     * same thread. Unlike {@link java.io.StringWriter} it does no locking.
+     */
+    private static final class StringBuilderWriter extends Writer {
+        private StringBuilder builder = new StringBuilder(256);
+
+        void reset() {
+            if (builder.capacity() > MAX_RETAINED_BUFFER) {
+                builder = new StringBuilder(256);
+            } else {
+                builder.setLength(0);
+            }
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            builder.append(str, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
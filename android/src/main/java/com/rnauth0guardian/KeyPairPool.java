@@ -0,0 +1,138 @@
+package com.rnauth0guardian;
+
+import android.os.Process;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a small number of RSA key pairs ready so that {@code enroll} does not have to run
+ * the 2048-bit generator when the user is waiting. Keys are generated one at a time on the
+ * given executor, at background priority, and the pool is topped up again after every
+ * {@link #take()}. {@link #setCapacity} resizes the pool in place: ready keys are kept up to
+ * the new capacity and a refill already running carries on to it.
+ */
+public class KeyPairPool {
+
+    private static final String TAG = KeyPairPool.class.getName();
+
+    static final int DEFAULT_CAPACITY = 1;
+    private static final int KEY_SIZE = 2048; // at least 2048 bits!
+
+    private final ConcurrentLinkedQueue<KeyPair> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger readyCount = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Executor executor;
+
+    private volatile int capacity;
+    private volatile boolean started;
+
+    public KeyPairPool(int capacity, Executor executor) {
+        this.capacity = Math.max(0, capacity);
+        this.executor = executor;
+    }
+
+    public static KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(KEY_SIZE);
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    /**
+     * Starts filling the pool in the background. Safe to call more than once.
+     */
+    public void start() {
+        started = true;
+        scheduleRefill();
+    }
+
+    /**
+     * Returns a ready key pair when one is available, otherwise generates one on the
+     * calling thread.
+     */
+    public KeyPair take() throws NoSuchAlgorithmException {
+        KeyPair keyPair = ready.poll();
+        if (keyPair != null) {
+            readyCount.decrementAndGet();
+            hits.incrementAndGet();
+            scheduleRefill();
+            return keyPair;
+        }
+
+        misses.incrementAndGet();
+        scheduleRefill();
+        return generateKeyPair();
+    }
+
+    public void setCapacity(int capacity) {
+        capacity = Math.max(0, capacity);
+        if (capacity == this.capacity) {
+            return;
+        }
+        this.capacity = capacity;
+        trim();
+        scheduleRefill();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getReadyCount() {
+        return readyCount.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void trim() {
+        while (readyCount.get() > capacity && ready.poll() != null) {
+            readyCount.decrementAndGet();
+        }
+    }
+
+    private void scheduleRefill() {
+        if (!started || readyCount.get() >= capacity || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // the executor is shared with work the user waits on; only refills yield to it
+                int tid = Process.myTid();
+                int priority = Process.getThreadPriority(tid);
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    while (readyCount.get() < capacity) {
+                        ready.offer(generateKeyPair());
+                        readyCount.incrementAndGet();
+                        // the capacity may have shrunk while the key was generated
+                        trim();
+                    }
+                } catch (Exception e) {
+                    GuardianLog.e(TAG, "Error generating keys", e);
+                    refilling.set(false);
+                    return;
+                } finally {
+                    Process.setThreadPriority(priority);
+                }
+                refilling.set(false);
+                // a take() may have raced with the last check above
+                scheduleRefill();
+            }
+        });
+    }
+}
@@ -1,6 +1,5 @@
 package com.rnauth0guardian;
 
-import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.ReadableType;
@@ -105,32 +104,6 @@ public class MapUtil {
     }
 
     public static WritableMap toWritableMap(Map<String, Object> map) {
-        WritableMap writableMap = Arguments.createMap();
-        Iterator iterator = map.entrySet().iterator();
-
-        while (iterator.hasNext()) {
-            Map.Entry pair = (Map.Entry)iterator.next();
-            Object value = pair.getValue();
-
-            if (value == null) {
-                writableMap.putNull((String) pair.getKey());
-            } else if (value instanceof Boolean) {
-                writableMap.putBoolean((String) pair.getKey(), (Boolean) value);
-            } else if (value instanceof Double) {
-                writableMap.putDouble((String) pair.getKey(), (Double) value);
-            } else if (value instanceof Integer) {
-                writableMap.putInt((String) pair.getKey(), (Integer) value);
-            } else if (value instanceof String) {
-                writableMap.putString((String) pair.getKey(), (String) value);
-            } else if (value instanceof Map) {
-                writableMap.putMap((String) pair.getKey(), MapUtil.toWritableMap((Map<String, Object>) value));
-            } else if (value.getClass() != null && value.getClass().isArray()) {
-                writableMap.putArray((String) pair.getKey(), ArrayUtil.toWritableArray((Object[]) value));
-            }
-
-            iterator.remove();
-        }
-
-        return writableMap;
+        return WritableConverter.toWritableMap(map);
     }
 }
@@ -8,133 +8,590 @@
 
 package com.rnauth0guardian;
 
-import android.content.SharedPreferences;
-import android.util.Log;
+import android.net.Uri;
+import android.os.Looper;
+import android.os.MessageQueue;
 
 import com.auth0.android.guardian.sdk.CurrentDevice;
 import com.auth0.android.guardian.sdk.Enrollment;
-import com.auth0.android.guardian.sdk.Notification;
-import com.auth0.android.guardian.sdk.ParcelableNotification;
-import com.auth0.android.guardian.sdk.networking.Callback;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
-import com.auth0.android.guardian.sdk.Guardian;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
-
-import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
-import static android.content.Context.MODE_PRIVATE;
 
-
-public class RNAuth0GuardianModule extends ReactContextBaseJavaModule {
+public class RNAuth0GuardianModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
 
   private final ReactApplicationContext reactContext;
   private static final String TAG = RNAuth0GuardianModule.class.getName();
 
-  private Guardian guardian;
-  SharedPreferences mPrefs;
-  private ParcelableEnrollment enrollment;
+  private final GuardianExecutors executors;
+  private final GuardianState state = new GuardianState();
+
+  private final GuardianHttpClient httpClient;
+  private final GuardianClientCache clientCache;
+  private final EnrollmentRepository enrollmentRepository;
+  private final KeyPairPool keyPairPool;
+
+  private final TotpTicker totpTicker;
+  private final DecisionOutbox outbox;
+  private final HeadlessResults headlessResults;
+  private final TransactionResolver resolver;
+  private volatile int batchParallelism = TransactionBatch.DEFAULT_PARALLELISM;
+
+  static final String TOTP_EVENT = "Auth0GuardianTOTP";
+  static final String OUTBOX_EVENT = "Auth0GuardianOutbox";
+  static final String HEADLESS_EVENT = "Auth0GuardianHeadless";
+  // allow/reject failed for lack of network; the decision is retried in the background
+  static final String DECISION_QUEUED = "DECISION_QUEUED";
+  // not initialized yet, or another enroll/unenroll is still running
+  static final String INVALID_STATE = "INVALID_STATE";
 
-  private static final String ENROLLMENT = "ENROLLMENT";
   private static final Exception DEVICE_NOT_ENROLLED_EXCEPTION = new IllegalStateException("DEVICE_NOT_ENROLLED");
 
   public RNAuth0GuardianModule(ReactApplicationContext reactContext) {
     super(reactContext);
     this.reactContext = reactContext;
-    mPrefs = this.reactContext.getSharedPreferences("myPrefsKeys", MODE_PRIVATE);
+    // shared with the notification actions, which may run in this process as well
+    GuardianRuntime runtime = GuardianRuntime.get(reactContext);
+    executors = runtime.executors;
+    httpClient = runtime.httpClient;
+    clientCache = runtime.clientCache;
+    enrollmentRepository = runtime.enrollmentRepository;
+    outbox = runtime.outbox;
+    resolver = runtime.resolver;
+    headlessResults = runtime.headlessResults;
+    keyPairPool = runtime.keyPairPool;
+    // results go back to JS from the native modules queue, never from a pool thread
+    runtime.setCallbackExecutor(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        RNAuth0GuardianModule.this.reactContext.runOnNativeModulesQueueThread(command);
+      }
+    });
+    runtime.setOutboxListener(new DecisionOutbox.Listener() {
+      @Override
+      public void onDelivered(DecisionOutbox.Decision decision) {
+        emitOutboxEvent(decision, "delivered", null);
+      }
+
+      @Override
+      public void onDropped(DecisionOutbox.Decision decision, String reason, Throwable error) {
+        emitOutboxEvent(decision, reason, error);
+      }
+    });
+    totpTicker = new TotpTicker(enrollmentRepository, new TotpTicker.Listener() {
+      @Override
+      public void onTick(String enrollmentId, TotpEngine.Window window) {
+        emitTOTP(enrollmentId, window);
+      }
+    });
+    // codes subscribed before the stored enrollments were read start once they are
+    enrollmentRepository.load(new GuardianCallback<Integer>() {
+      @Override
+      public void onSuccess(Integer response) {
+        totpTicker.enrollmentsChanged();
+      }
+
+      @Override
+      public void onFailure(Throwable exception) {
+        GuardianLog.e(TAG, "LOADING ENROLLMENT FAILED!", exception);
+      }
+    });
+    // decisions made from notification actions while this module is alive
+    HeadlessResults.setListener(new HeadlessResults.Listener() {
+      @Override
+      public void onResult(JSONObject result) {
+        emitHeadlessEvent(result);
+      }
+    });
+    reactContext.addLifecycleEventListener(this);
+  }
+
+  @Override
+  public Map<String, Object> getConstants() {
+    Map<String, Object> constants = new HashMap<>();
+    constants.put("TOTP_EVENT", TOTP_EVENT);
+    constants.put("OUTBOX_EVENT", OUTBOX_EVENT);
+    constants.put("HEADLESS_EVENT", HEADLESS_EVENT);
+    return constants;
+  }
+
+  @Override
+  public void onHostResume() {
+    totpTicker.setForeground(true);
+    if (resolver.getDefaultDomain() != null) {
+      outbox.retryNow();
+    }
+  }
+
+  @Override
+  public void onHostPause() {
+    totpTicker.setForeground(false);
+  }
+
+  @Override
+  public void onHostDestroy() {
+    totpTicker.setForeground(false);
   }
 
-  private ParcelableEnrollment getEnrollment(){
-    String json = mPrefs.getString(ENROLLMENT, "");
-    Log.e(TAG, json);
-    return ParcelableEnrollment.fromJSON(json);
+  @Override
+  public void onCatalystInstanceDestroy() {
+    totpTicker.shutdown();
+    GuardianRuntime runtime = GuardianRuntime.get(reactContext);
+    runtime.setCallbackExecutor(null);
+    runtime.setOutboxListener(null);
+    HeadlessResults.setListener(null);
+    reactContext.removeLifecycleEventListener(this);
+  }
+
+  private void saveEnrollment(Enrollment data, String domain){
+    enrollmentRepository.save(new ParcelableEnrollment(data, domain));
+    totpTicker.enrollmentsChanged();
+  }
+
+  // null means the domain passed to initialize
+  private GuardianClientCache.Clients clientsFor(String domain) {
+    return clientCache.get(resolver.domainOrDefault(domain));
+  }
+
+  // enrollment URIs name their tenant in the base_url parameter
+  private static String domainOfEnrollmentUri(String enrollmentURI) {
+    try {
+      return Uri.parse(enrollmentURI).getQueryParameter("base_url");
+    } catch (UnsupportedOperationException e) {
+      // not a hierarchical URI, e.g. a bare enrollment ticket
+      return null;
+    }
   }
 
-  private void saveEnrollment(Enrollment data){
-    SharedPreferences.Editor prefsEditor = mPrefs.edit();
-    ParcelableEnrollment parcelableEnrollment = new ParcelableEnrollment(data);
-    enrollment = parcelableEnrollment;
-    String json = parcelableEnrollment.toJSON();
-    prefsEditor.putString(ENROLLMENT, json);
-    prefsEditor.commit();
+  @ReactMethod
+  public void initialize(String domain, final Promise promise) {
+    try {
+      // clients for each domain are kept across calls, with their open connections
+      clientCache.get(domain);
+      resolver.setDefaultDomain(domain);
+      keyPairPool.start();
+      // queued decisions that waited for a tenant can go now
+      outbox.retryNow();
+      // a repeated initialize waits for the same load but leaves the state to the first one
+      final boolean loading = state.beginLoading();
+      final GuardianCallback<Integer> result = executors.deliver(new GuardianCallback<Integer>() {
+        @Override
+        public void onSuccess(Integer response) {
+          promise.resolve(true);
+        }
+
+        @Override
+        public void onFailure(Throwable exception) {
+          promise.reject(exception);
+        }
+      });
+      // the state is updated on the storage thread right away; only the promise waits for the
+      // native modules queue
+      enrollmentRepository.load(new GuardianCallback<Integer>() {
+        @Override
+        public void onSuccess(Integer response) {
+          if (loading) {
+            state.finishLoading(response > 0);
+          }
+          result.onSuccess(response);
+        }
+
+        @Override
+        public void onFailure(Throwable exception) {
+          GuardianLog.e(TAG, "LOADING ENROLLMENT FAILED!", exception);
+          if (loading) {
+            state.failLoading();
+          }
+          result.onFailure(exception);
+        }
+      });
+    } catch (Exception err){
+      promise.reject(err);
+    }
   }
 
+  /**
+   * Optional. Once the main thread is idle, loads the stored enrollments and primes the crypto
+   * providers and the HTTP client in the background, so the first TOTP or allow does not pay for
+   * them. Resolves when done.
+   */
   @ReactMethod
-  public void initialize(String domain, Promise promise) {
+  public void warmUp(final Promise promise) {
+    UiThreadUtil.runOnUiThread(new Runnable() {
+      @Override
+      public void run() {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+          @Override
+          public boolean queueIdle() {
+            enrollmentRepository.load(new GuardianCallback<Integer>() {
+              @Override
+              public void onSuccess(Integer response) {
+                executors.cpu().execute(new Runnable() {
+                  @Override
+                  public void run() {
+                    warmUpNow(promise);
+                  }
+                });
+              }
+
+              @Override
+              public void onFailure(Throwable exception) {
+                GuardianLog.e(TAG, "WARM UP FAILED!", exception);
+                promise.reject(exception);
+              }
+            });
+            return false;
+          }
+        });
+      }
+    });
+  }
+
+  private void warmUpNow(final Promise promise) {
     try {
-      guardian = new Guardian.Builder()
-        .domain(domain)
-        .build();
-      enrollment = getEnrollment();
+      KeyPairGenerator.getInstance("RSA");
+      Signature.getInstance(SigningKeyHolder.SIGNATURE_ALGORITHM);
+      httpClient.get();
+      GuardianEnrollment enrollment = enrollmentRepository.getPrimary();
+      if (enrollment != null) {
+        enrollment.getSigningKeyHolder().getPrivateKey();
+        enrollment.getTotpEngine();
+      }
+      promise.resolve(true);
+    } catch (Exception err) {
+      GuardianLog.e(TAG, "WARM UP FAILED!", err);
+      promise.reject(err);
+    }
+  }
+
+  @ReactMethod
+  public void flushStorage(final Promise promise) {
+    enrollmentRepository.flush(executors.deliver(new GuardianCallback<Void>() {
+      @Override
+      public void onSuccess(Void response) {
+        promise.resolve(true);
+      }
+
+      @Override
+      public void onFailure(Throwable exception) {
+        promise.reject(exception);
+      }
+    }));
+  }
+
+  @ReactMethod
+  public void configure(ReadableMap options, Promise promise) {
+    try {
+      if (options.hasKey("keyPoolSize")) {
+        keyPairPool.setCapacity(options.getInt("keyPoolSize"));
+      }
+      if (options.hasKey("logLevel")) {
+        GuardianLog.setLevel(logLevel(options.getString("logLevel")));
+      }
+      if (options.hasKey("batchParallelism")) {
+        batchParallelism = Math.max(1, options.getInt("batchParallelism"));
+      }
+      if (options.hasKey("cpuThreads")) {
+        executors.setCpuThreads(options.getInt("cpuThreads"));
+      }
+      if (options.hasKey("networkThreads")) {
+        executors.setNetworkThreads(options.getInt("networkThreads"));
+      }
+      if (options.hasKey("httpTimeoutMs") || options.hasKey("maxIdleConnections") || options.hasKey("keepAliveMs")) {
+        httpClient.configure(
+          options.hasKey("httpTimeoutMs") ? options.getInt("httpTimeoutMs") : GuardianHttpClient.DEFAULT_TIMEOUT_MS,
+          options.hasKey("maxIdleConnections") ? options.getInt("maxIdleConnections") : GuardianHttpClient.DEFAULT_MAX_IDLE_CONNECTIONS,
+          options.hasKey("keepAliveMs") ? (long) options.getDouble("keepAliveMs") : GuardianHttpClient.DEFAULT_KEEP_ALIVE_MS);
+      }
       promise.resolve(true);
-      Log.i("SAVED ENROLLMENT", enrollment.toJSON());
     } catch (Exception err){
       promise.reject(err);
     }
   }
 
-  private KeyPair generateKeyPair() {
+  private static int logLevel(String name) {
+    switch (name) {
+      case "verbose": return GuardianLog.VERBOSE;
+      case "debug": return GuardianLog.DEBUG;
+      case "info": return GuardianLog.INFO;
+      case "warn": return GuardianLog.WARN;
+      case "error": return GuardianLog.ERROR;
+      case "none": return GuardianLog.NONE;
+      default: throw new IllegalArgumentException("Unknown log level " + name);
+    }
+  }
+
+  // call when a push arrives, before the user answers it; resolves false if the connection
+  // could not be opened, which is not an error for allow/reject
+  @ReactMethod
+  public void prewarm(final Promise promise) {
+    if (resolver.getDefaultDomain() == null) {
+      promise.resolve(false);
+      return;
+    }
+    prewarm(clientsFor(null).transactionClient, promise);
+  }
+
+  // same as prewarm, for the tenant the push came from
+  @ReactMethod
+  public void prewarmForNotification(ReadableMap data, final Promise promise) {
     try {
-      KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-      keyPairGenerator.initialize(2048); // at least 2048 bits!
-      return keyPairGenerator.generateKeyPair();
-    } catch (NoSuchAlgorithmException e) {
-      Log.e(TAG, "Error generating keys", e);
+      GuardianNotification notification = NotificationDecoder.decode(new ReadablePayload(data));
+      prewarm(resolver.clientFor(resolver.findEnrollment(notification), notification), promise);
+    } catch (Exception err) {
+      promise.resolve(false);
     }
+  }
+
+  private void prewarm(TransactionClient transactionClient, final Promise promise) {
+    transactionClient.prewarm(new GuardianHttpClient.Callback() {
+      @Override
+      public void onReady(final boolean success) {
+        // called on an OkHttp thread of the network pool
+        executors.callbacks().execute(new Runnable() {
+          @Override
+          public void run() {
+            promise.resolve(success);
+          }
+        });
+      }
+    });
+  }
 
-    return null;
+  @ReactMethod
+  public void getKeyPoolStats(Promise promise) {
+    WritableMap stats = Arguments.createMap();
+    stats.putInt("capacity", keyPairPool.getCapacity());
+    stats.putInt("ready", keyPairPool.getReadyCount());
+    stats.putDouble("hits", keyPairPool.getHits());
+    stats.putDouble("misses", keyPairPool.getMisses());
+    promise.resolve(stats);
+  }
+
+  @ReactMethod
+  public void getExecutorStats(Promise promise) {
+    WritableMap stats = Arguments.createMap();
+    stats.putMap("cpu", toWritableMap(executors.cpuStats()));
+    stats.putMap("storage", toWritableMap(executors.storageStats()));
+    stats.putMap("network", toWritableMap(executors.networkStats()));
+    promise.resolve(stats);
+  }
+
+  private static WritableMap toWritableMap(GuardianExecutors.Stats stats) {
+    WritableMap map = Arguments.createMap();
+    map.putInt("threads", stats.threads);
+    map.putInt("active", stats.active);
+    map.putInt("queued", stats.queued);
+    map.putDouble("completed", stats.completed);
+    map.putDouble("averageWaitMs", stats.averageWaitMs);
+    map.putDouble("maxWaitMs", stats.maxWaitMs);
+    return map;
+  }
+
+  // latency histograms and outcome counts since start or the last resetMetrics
+  @ReactMethod
+  public void getMetrics(Promise promise) {
+    try {
+      long[] bounds = GuardianMetrics.getBucketBoundsMicros();
+      String[] outcomeNames = GuardianMetrics.getOutcomeNames();
+      WritableArray bucketBoundsMs = Arguments.createArray();
+      for (long bound : bounds) {
+        bucketBoundsMs.pushDouble(bound / 1000.0);
+      }
+      WritableMap metrics = Arguments.createMap();
+      for (GuardianMetrics.Snapshot snapshot : GuardianMetrics.snapshot()) {
+        WritableMap metric = Arguments.createMap();
+        metric.putDouble("count", snapshot.count);
+        metric.putDouble("totalMs", snapshot.totalNanos / 1e6);
+        metric.putDouble("maxMs", snapshot.maxNanos / 1e6);
+        metric.putDouble("p50Ms", snapshot.percentileMs(50));
+        metric.putDouble("p95Ms", snapshot.percentileMs(95));
+        metric.putDouble("p99Ms", snapshot.percentileMs(99));
+        WritableArray buckets = Arguments.createArray();
+        for (long count : snapshot.buckets) {
+          buckets.pushDouble(count);
+        }
+        metric.putArray("buckets", buckets);
+        WritableMap outcomes = Arguments.createMap();
+        for (int i = 0; i < outcomeNames.length; i++) {
+          outcomes.putDouble(outcomeNames[i], snapshot.outcomes[i]);
+        }
+        metric.putMap("outcomes", outcomes);
+        metrics.putMap(snapshot.name, metric);
+      }
+      WritableMap result = Arguments.createMap();
+      result.putArray("bucketBoundsMs", bucketBoundsMs);
+      result.putMap("metrics", metrics);
+      promise.resolve(result);
+    } catch (Exception err) {
+      promise.reject(err);
+    }
+  }
+
+  @ReactMethod
+  public void resetMetrics(Promise promise) {
+    GuardianMetrics.reset();
+    promise.resolve(true);
   }
 
   @Override
   public String getName() {
-    return "RNAuth0Guardian";
+    return RNAuth0GuardianPackage.MODULE_NAME;
   }
 
   @ReactMethod
-  public void enroll(String enrollmentURI, String FCMToken, final Promise promise){
+  public void enroll(final String enrollmentURI, String FCMToken, final Promise promise){
+    final long start = System.nanoTime();
+    final GuardianState.State operation = state.beginEnroll();
+    if (operation == null) {
+      GuardianMetrics.record(GuardianMetrics.ENROLL, start, GuardianMetrics.INVALID_STATE);
+      rejectInvalidState("enroll", promise);
+      return;
+    }
     String deviceName = android.os.Build.MODEL;
-    CurrentDevice device = new CurrentDevice(this.reactContext, FCMToken, deviceName);
-    try {
-      KeyPair keyPair = generateKeyPair();
-      if(keyPair != null) {
-        guardian
-          .enroll(enrollmentURI, device, keyPair)
-          .start(new Callback<Enrollment>() {
-            @Override
-            public void onSuccess(Enrollment response) {
-              Log.i(TAG, "ENROLLED SUCCESSFULLY!");
-              promise.resolve(response.getSecret());
-              saveEnrollment(response);
-            }
-
-            @Override
-            public void onFailure(Throwable exception) {
-              Log.i(TAG, "ENROLL FAILED!");
-              promise.reject(exception);
-            }
-          });
+    final CurrentDevice device = new CurrentDevice(this.reactContext, FCMToken, deviceName);
+    // an empty key pool means generating a key pair here, which must not block the bridge
+    executors.cpu().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final GuardianClientCache.Clients clients = clientsFor(domainOfEnrollmentUri(enrollmentURI));
+          long keyStart = System.nanoTime();
+          KeyPair keyPair = keyPairPool.take();
+          GuardianMetrics.record(GuardianMetrics.KEY_LOAD, keyStart);
+          final long networkStart = System.nanoTime();
+          clients.guardian
+            .enroll(enrollmentURI, device, keyPair)
+            .start(new SdkCallback<>(executors.deliver(new GuardianCallback<Enrollment>() {
+              @Override
+              public void onSuccess(Enrollment response) {
+                GuardianMetrics.record(GuardianMetrics.NETWORK, networkStart);
+                GuardianLog.i(TAG, "ENROLLED SUCCESSFULLY!");
+                saveEnrollment(response, clients.domain);
+                settle(operation);
+                GuardianMetrics.record(GuardianMetrics.ENROLL, start);
+                promise.resolve(response.getSecret());
+              }
+
+              @Override
+              public void onFailure(Throwable exception) {
+                GuardianMetrics.record(GuardianMetrics.NETWORK, networkStart, exception);
+                GuardianLog.w(TAG, "ENROLL FAILED!", exception);
+                settle(operation);
+                GuardianMetrics.record(GuardianMetrics.ENROLL, start, exception);
+                promise.reject(exception);
+              }
+            })));
+        } catch (Exception err){
+          GuardianMetrics.record(GuardianMetrics.ENROLL, start, err);
+          settle(operation);
+          promise.reject(err);
+          GuardianLog.e(TAG, "ENROLLMENT EXCEPTION", err);
+        }
       }
+    });
+  }
 
+  @ReactMethod
+  public void getEnrollments(Promise promise){
+    try {
+      WritableArray enrollments = Arguments.createArray();
+      for (EnrollmentRepository.Record record : enrollmentRepository.getAll()) {
+        WritableMap item = Arguments.createMap();
+        item.putString("id", record.id);
+        item.putString("userId", record.userId);
+        item.putString("deviceIdentifier", record.deviceIdentifier);
+        enrollments.pushMap(item);
+      }
+      promise.resolve(enrollments);
     } catch (Exception err){
       promise.reject(err);
-      Log.e("AUTH0 GUARDIAN", "ENROLLMENT EXCEPTION", err);
     }
-
   }
 
   @ReactMethod
   public void getTOTP(Promise promise){
+    resolveTOTP(null, promise);
+  }
+
+  @ReactMethod
+  public void getTOTPForEnrollment(String enrollmentId, Promise promise){
+    resolveTOTP(enrollmentId, promise);
+  }
+
+  // Blocking methods run on the JS thread and return straight to JS, without a promise or a
+  // hop through the native modules queue. They are not available in remote debugging.
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public String getTOTPSync(){
     try {
+      GuardianEnrollment enrollment = enrollmentRepository.getPrimary();
+      return enrollment != null ? generateTOTP(enrollment) : null;
+    } catch (RuntimeException err) {
+      // an exception here would crash the app; a corrupt enrollment reads as none
+      GuardianLog.e(TAG, "TOTP FAILED!", err);
+      return null;
+    }
+  }
+
+  @ReactMethod(isBlockingSynchronousMethod = true)
+  public WritableMap getTOTPsSync(ReadableArray enrollmentIds){
+    WritableMap codes = Arguments.createMap();
+    for (int i = 0; i < enrollmentIds.size(); i++) {
+      String enrollmentId = enrollmentIds.getString(i);
+      String code = null;
+      try {
+        GuardianEnrollment enrollment = enrollmentRepository.getById(enrollmentId);
+        if (enrollment != null) {
+          code = generateTOTP(enrollment);
+        }
+      } catch (RuntimeException err) {
+        GuardianLog.e(TAG, "TOTP FAILED for {}", enrollmentId, err);
+      }
+      if (code != null) {
+        codes.putString(enrollmentId, code);
+      } else {
+        codes.putNull(enrollmentId);
+      }
+    }
+    return codes;
+  }
+
+  // null means the primary enrollment
+  private GuardianEnrollment findEnrollment(String enrollmentId) {
+    return enrollmentId != null ? enrollmentRepository.getById(enrollmentId) : enrollmentRepository.getPrimary();
+  }
+
+  private void resolveTOTP(String enrollmentId, Promise promise){
+    try {
+      // stored records are decoded on first lookup, which throws if one is corrupt
+      GuardianEnrollment enrollment = findEnrollment(enrollmentId);
       if(enrollment != null){
-        String totpCode = Guardian.getOTPCode(enrollment);
-        promise.resolve(totpCode);
+        promise.resolve(generateTOTP(enrollment));
       } else {
+        GuardianMetrics.record(GuardianMetrics.TOTP, System.nanoTime(), GuardianMetrics.NOT_ENROLLED);
         promise.reject(DEVICE_NOT_ENROLLED_EXCEPTION);
       }
     } catch (Exception err){
@@ -142,95 +599,328 @@ public class RNAuth0GuardianModule extends ReactContextBaseJavaModule {
     }
   }
 
+  private static String generateTOTP(GuardianEnrollment enrollment) {
+    long start = System.nanoTime();
+    try {
+      String code = enrollment.getTotpEngine().generate(System.currentTimeMillis());
+      GuardianMetrics.record(GuardianMetrics.TOTP, start);
+      return code;
+    } catch (GeneralSecurityException e) {
+      GuardianMetrics.record(GuardianMetrics.TOTP, start, e);
+      throw new IllegalStateException("Invalid TOTP parameters", e);
+    }
+  }
+
+  @ReactMethod
+  public void getTOTPWindow(Promise promise){
+    resolveTOTPWindow(null, promise);
+  }
 
   @ReactMethod
-  public void allow(ReadableMap data, final Promise promise) {
-    Map parsedData = MapUtil.toMap(data);
-    ParcelableNotification notification = Guardian.parseNotification(parsedData);
-    try {
-
-      if(enrollment != null) {
-        guardian
-          .allow(notification, enrollment)
-          .start(new Callback<Void>() {
-            @Override
-            public void onSuccess(Void response) {
-              Log.i(TAG, "ALLOWED SUCCESSFULLY");
-              promise.resolve(true);
-            }
+  public void getTOTPWindowForEnrollment(String enrollmentId, Promise promise){
+    resolveTOTPWindow(enrollmentId, promise);
+  }
 
-            @Override
-            public void onFailure(Throwable exception) {
-              Log.e(TAG, "ALLOW FAILED!", exception);
-              promise.reject(exception);
-            }
-          });
+  private void resolveTOTPWindow(String enrollmentId, Promise promise){
+    long start = System.nanoTime();
+    try {
+      GuardianEnrollment enrollment = findEnrollment(enrollmentId);
+      if(enrollment != null){
+        TotpEngine.Window window = enrollment.getTotpEngine().window(System.currentTimeMillis());
+        GuardianMetrics.record(GuardianMetrics.TOTP, start);
+        promise.resolve(toWritableMap(window));
       } else {
+        GuardianMetrics.record(GuardianMetrics.TOTP, start, GuardianMetrics.NOT_ENROLLED);
         promise.reject(DEVICE_NOT_ENROLLED_EXCEPTION);
       }
     } catch (Exception err){
-      Log.e(TAG, "ALLOW FAILED!", err);
+      GuardianMetrics.record(GuardianMetrics.TOTP, start, err);
+      promise.reject(err);
+    }
+  }
+
+
+  private static WritableMap toWritableMap(TotpEngine.Window window) {
+    WritableMap result = Arguments.createMap();
+    result.putString("previous", window.previous);
+    result.putString("current", window.current);
+    result.putString("next", window.next);
+    result.putInt("period", window.period);
+    result.putInt("remainingSeconds", window.remainingSeconds);
+    result.putDouble("expiresAt", window.expiresAt);
+    return result;
+  }
+
+  private void emitTOTP(String enrollmentId, TotpEngine.Window window) {
+    if (!reactContext.hasActiveCatalystInstance()) {
+      return;
+    }
+    WritableMap event = toWritableMap(window);
+    event.putString("enrollmentId", enrollmentId);
+    reactContext
+      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+      .emit(TOTP_EVENT, event);
+  }
+
+  private void emitOutboxEvent(DecisionOutbox.Decision decision, String status, Throwable error) {
+    if (!reactContext.hasActiveCatalystInstance()) {
+      return;
+    }
+    WritableMap event = Arguments.createMap();
+    event.putString("transactionToken", decision.notification.getTransactionToken());
+    event.putString("enrollmentId", decision.notification.getEnrollmentId());
+    event.putBoolean("accepted", decision.accepted);
+    event.putString("status", status);
+    if (error != null) {
+      event.putString("error", error.getMessage());
+    }
+    event.putInt("depth", outbox.getDepth());
+    reactContext
+      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+      .emit(OUTBOX_EVENT, event);
+  }
+
+  @ReactMethod
+  public void getOutboxDepth(Promise promise) {
+    promise.resolve(outbox.getDepth());
+  }
+
+  // outcomes of notification actions handled natively, oldest first; each is returned once
+  @ReactMethod
+  public void consumeHeadlessResults(Promise promise) {
+    try {
+      promise.resolve(JsonUtil.toWritableArray(headlessResults.drain().toString()));
+    } catch (Exception err) {
       promise.reject(err);
     }
   }
 
+  private void emitHeadlessEvent(JSONObject result) {
+    if (!reactContext.hasActiveCatalystInstance()) {
+      return;
+    }
+    try {
+      reactContext
+        .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+        .emit(HEADLESS_EVENT, JsonUtil.toWritableMap(result.toString()));
+    } catch (IOException e) {
+      GuardianLog.e(TAG, "Error emitting headless result", e);
+    }
+  }
+
+  @ReactMethod
+  public void subscribeTOTP(String enrollmentId) {
+    totpTicker.subscribe(enrollmentId);
+  }
+
+  @ReactMethod
+  public void unsubscribeTOTP(String enrollmentId) {
+    totpTicker.unsubscribe(enrollmentId);
+  }
+
+  // required by NativeEventEmitter. removeListeners does not say which event, so listeners
+  // cannot tell the TOTP ticker anything; subscribeTOTP and unsubscribeTOTP drive it
+  @ReactMethod
+  public void addListener(String eventName) {
+  }
+
+  @ReactMethod
+  public void removeListeners(Integer count) {
+  }
+
+  @ReactMethod
+  public void allow(ReadableMap data, final Promise promise) {
+    resolveTransaction(data, true, promise);
+  }
+
   @ReactMethod
   public void reject(ReadableMap data, final Promise promise) {
+    resolveTransaction(data, false, promise);
+  }
+
+  private void resolveTransaction(ReadableMap data, final boolean accepted, final Promise promise) {
+    final String action = accepted ? "ALLOW" : "REJECT";
     try {
-      Map parsedData = MapUtil.toMap(data);
-      Notification notification = Guardian.parseNotification(parsedData);
-
-      if(enrollment != null) {
-        guardian
-          .reject(notification, enrollment)
-          .start(new Callback<Void>() {
-            @Override
-            public void onSuccess(Void response) {
-              Log.i(TAG, "REJECTED SUCCESSFULLY");
-              promise.resolve(true);
-            }
+      GuardianNotification notification = NotificationDecoder.decode(new ReadablePayload(data));
+      // repeated pushes and double taps for the same transaction share one request
+      resolver.resolve(notification, accepted, null, executors.deliver(new GuardianCallback<Void>() {
+        @Override
+        public void onSuccess(Void response) {
+          GuardianLog.i(TAG, "{} SUCCEEDED", action);
+          promise.resolve(true);
+        }
+
+        @Override
+        public void onFailure(Throwable exception) {
+          GuardianLog.e(TAG, "{} FAILED!", action, exception);
+          if (exception instanceof IOException) {
+            promise.reject(DECISION_QUEUED, exception.getMessage(), exception);
+          } else {
+            promise.reject(exception);
+          }
+        }
+      }));
+    } catch (Exception err){
+      GuardianLog.e(TAG, "{} FAILED!", action, err);
+      promise.reject(err);
+    }
+  }
 
-            @Override
-            public void onFailure(Throwable exception) {
-              Log.e(TAG, "REJECT FAILED!", exception);
-              promise.reject(exception);
-            }
-          });
-      } else {
-        promise.reject(DEVICE_NOT_ENROLLED_EXCEPTION);
+  @ReactMethod
+  public void allowMany(ReadableArray notifications, Promise promise) {
+    resolveBatch(notifications, Boolean.TRUE, promise);
+  }
+
+  @ReactMethod
+  public void rejectMany(ReadableArray notifications, Promise promise) {
+    resolveBatch(notifications, Boolean.FALSE, promise);
+  }
+
+  // each decision is { notification, accept, reason? }
+  @ReactMethod
+  public void resolveBatch(ReadableArray decisions, Promise promise) {
+    resolveBatch(decisions, null, promise);
+  }
+
+  private void resolveBatch(ReadableArray items, Boolean accept, final Promise promise) {
+    try {
+      int size = items.size();
+      List<TransactionBatch.Item> requests = new ArrayList<>(size);
+      Throwable[] failures = new Throwable[size];
+
+      // parse and prepare everything in one pass before any request goes out
+      for (int i = 0; i < size; i++) {
+        try {
+          ReadableMap item = items.getMap(i);
+          boolean accepted = accept != null ? accept : item.getBoolean("accept");
+          ReadableMap data = accept != null ? item : item.getMap("notification");
+          String reason = accept == null && item.hasKey("reason") && !item.isNull("reason")
+            ? item.getString("reason") : null;
+
+          GuardianNotification notification = NotificationDecoder.decode(new ReadablePayload(data));
+          requests.add(resolver.prepareItem(notification, accepted, reason));
+        } catch (Exception err) {
+          requests.add(null);
+          failures[i] = err;
+        }
+      }
+
+      TransactionBatch batch = new TransactionBatch(requests);
+      for (int i = 0; i < size; i++) {
+        if (failures[i] != null) {
+          batch.fail(i, failures[i]);
+        }
       }
+      batch.start(executors.network(), batchParallelism, executors.deliver(new GuardianCallback<TransactionBatch.Result[]>() {
+        @Override
+        public void onSuccess(TransactionBatch.Result[] results) {
+          WritableArray response = Arguments.createArray();
+          for (TransactionBatch.Result result : results) {
+            WritableMap item = Arguments.createMap();
+            item.putBoolean("success", result.isSuccess());
+            if (!result.isSuccess()) {
+              item.putString("error", result.error.getMessage());
+              if (result.error instanceof TransactionException) {
+                item.putString("code", ((TransactionException) result.error).getErrorCode());
+              } else if (result.error instanceof IOException) {
+                item.putString("code", DECISION_QUEUED);
+              }
+            }
+            response.pushMap(item);
+          }
+          promise.resolve(response);
+        }
+
+        @Override
+        public void onFailure(Throwable exception) {
+          promise.reject(exception);
+        }
+      }));
     } catch (Exception err){
-      Log.e(TAG, "REJECT FAILED!", err);
+      GuardianLog.e(TAG, "BATCH FAILED!", err);
       promise.reject(err);
     }
   }
 
   @ReactMethod
   public void unenroll(final Promise promise){
-    try {
-      if(enrollment != null){
-        guardian
-          .delete(enrollment)
-          .start(new Callback<Void>() {
-            @Override
-            public void onSuccess(Void response) {
-              Log.i(TAG, "UNENROLLED SUCCESSFULLY");
-              promise.resolve(true);
-            }
+    unenroll(null, promise);
+  }
 
-            @Override
-            public void onFailure(Throwable exception) {
-              Log.e(TAG, "UNENROLL FAILED!", exception);
-              promise.reject(exception);
-            }
-          });
-      } else {
-        promise.reject(DEVICE_NOT_ENROLLED_EXCEPTION);
-      }
+  @ReactMethod
+  public void unenrollEnrollment(String enrollmentId, final Promise promise){
+    unenroll(enrollmentId, promise);
+  }
+
+  private void unenroll(String enrollmentId, final Promise promise){
+    final long start = System.nanoTime();
+    final GuardianEnrollment enrollment;
+    try {
+      enrollment = findEnrollment(enrollmentId);
+    } catch (RuntimeException err) {
+      GuardianLog.e(TAG, "UNENROLL FAILED!", err);
+      GuardianMetrics.record(GuardianMetrics.UNENROLL, start, err);
+      promise.reject(err);
+      return;
+    }
+    if(enrollment == null){
+      GuardianMetrics.record(GuardianMetrics.UNENROLL, start, GuardianMetrics.NOT_ENROLLED);
+      promise.reject(DEVICE_NOT_ENROLLED_EXCEPTION);
+      return;
+    }
+    final GuardianState.State operation = state.beginUnenroll(enrollment.getId());
+    if (operation == null) {
+      GuardianMetrics.record(GuardianMetrics.UNENROLL, start, GuardianMetrics.INVALID_STATE);
+      rejectInvalidState("unenroll", promise);
+      return;
+    }
+    try {
+      final long networkStart = System.nanoTime();
+      clientCache.get(resolver.domainFor(enrollment, null)).guardian
+        .delete(ParcelableEnrollment.of(enrollment))
+        .start(new SdkCallback<>(executors.deliver(new GuardianCallback<Void>() {
+          @Override
+          public void onSuccess(Void response) {
+            GuardianMetrics.record(GuardianMetrics.NETWORK, networkStart);
+            GuardianLog.i(TAG, "UNENROLLED SUCCESSFULLY");
+            enrollmentRepository.remove(enrollment.getId());
+            totpTicker.enrollmentsChanged();
+            settle(operation);
+            GuardianMetrics.record(GuardianMetrics.UNENROLL, start);
+            promise.resolve(true);
+          }
+
+          @Override
+          public void onFailure(Throwable exception) {
+            GuardianMetrics.record(GuardianMetrics.NETWORK, networkStart, exception);
+            GuardianLog.e(TAG, "UNENROLL FAILED!", exception);
+            settle(operation);
+            GuardianMetrics.record(GuardianMetrics.UNENROLL, start, exception);
+            promise.reject(exception);
+          }
+        })));
     } catch (Exception err) {
-      Log.e(TAG, "UNENROLL FAILED!", err);
+      GuardianLog.e(TAG, "UNENROLL FAILED!", err);
+      GuardianMetrics.record(GuardianMetrics.UNENROLL, start, err);
+      settle(operation);
       promise.reject(err);
     }
+  }
+
+  @ReactMethod
+  public void getState(Promise promise) {
+    GuardianState.State current = state.get();
+    WritableMap result = Arguments.createMap();
+    result.putString("status", current.status.name());
+    result.putString("enrollmentId", current.enrollmentId);
+    promise.resolve(result);
+  }
+
+  private void settle(GuardianState.State operation) {
+    state.settle(operation, !enrollmentRepository.getAll().isEmpty());
+  }
 
+  private void rejectInvalidState(String action, Promise promise) {
+    promise.reject(INVALID_STATE, "Cannot " + action + " while " + state.get());
   }
 }
\ No newline at end of file
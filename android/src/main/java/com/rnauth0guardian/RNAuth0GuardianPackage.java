@@ -8,28 +8,52 @@
 //
 package com.rnauth0guardian;
 
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 import com.facebook.react.uimanager.ViewManager;
-import com.facebook.react.bridge.JavaScriptModule;
-public class RNAuth0GuardianPackage implements ReactPackage {
+
+// Registered lazily: the module is only created the first time JS uses it, not when the bridge
+// starts, so app launches that never show an MFA screen do not pay for it.
+public class RNAuth0GuardianPackage extends TurboReactPackage {
+    static final String MODULE_NAME = "RNAuth0Guardian";
+
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-      return Arrays.<NativeModule>asList(new RNAuth0GuardianModule(reactContext));
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+      if (MODULE_NAME.equals(name)) {
+        return new RNAuth0GuardianModule(reactContext);
+      }
+      return null;
     }
 
-    // Deprecated from RN 0.47
-    public List<Class<? extends JavaScriptModule>> createJSModules() {
-      return Collections.emptyList();
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+      return new ReactModuleInfoProvider() {
+        @Override
+        public Map<String, ReactModuleInfo> getReactModuleInfos() {
+          Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+          moduleInfos.put(MODULE_NAME, new ReactModuleInfo(
+            MODULE_NAME,
+            RNAuth0GuardianModule.class.getName(),
+            false, // canOverrideExistingModule
+            false, // needsEagerInit
+            true, // hasConstants
+            false, // isCxxModule
+            false)); // isTurboModule
+          return moduleInfos;
+        }
+      };
     }
 
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
       return Collections.emptyList();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.rnauth0guardian;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+
+/**
+ * A push payload passed from JS, read key by key from the bridge map without converting it.
+ */
+public final class ReadablePayload implements NotificationDecoder.Payload {
+
+    private final ReadableMap data;
+
+    public ReadablePayload(ReadableMap data) {
+        this.data = data;
+    }
+
+    @Override
+    public String getString(String key) {
+        if (!data.hasKey(key) || data.getType(key) != ReadableType.String) {
+            return null;
+        }
+        return data.getString(key);
+    }
+}
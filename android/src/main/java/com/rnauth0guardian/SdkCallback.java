@@ -0,0 +1,25 @@
+package com.rnauth0guardian;
+
+import com.auth0.android.guardian.sdk.networking.Callback;
+
+/**
+ * Passes the Guardian SDK's results on to a {@link GuardianCallback}.
+ */
+public final class SdkCallback<T> implements Callback<T> {
+
+    private final GuardianCallback<T> callback;
+
+    public SdkCallback(GuardianCallback<T> callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess(T response) {
+        callback.onSuccess(response);
+    }
+
+    @Override
+    public void onFailure(Throwable exception) {
+        callback.onFailure(exception);
+    }
+}
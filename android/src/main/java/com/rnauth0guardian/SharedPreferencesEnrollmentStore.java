@@ -0,0 +1,49 @@
+package com.rnauth0guardian;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+
+import static android.content.Context.MODE_PRIVATE;
+
+/**
+ * Keeps enrollments in the app's shared preferences, under the same file name as earlier
+ * versions. The preferences are opened on first use, on the storage thread.
+ */
+public class SharedPreferencesEnrollmentStore implements EnrollmentStore {
+
+    private static final String PREFS_NAME = "myPrefsKeys";
+
+    private final Context context;
+    private SharedPreferences prefs;
+
+    public SharedPreferencesEnrollmentStore(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public String get(String key) {
+        return prefs().getString(key, null);
+    }
+
+    @Override
+    public boolean commit(Map<String, String> changes) {
+        SharedPreferences.Editor editor = prefs().edit();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                editor.remove(change.getKey());
+            } else {
+                editor.putString(change.getKey(), change.getValue());
+            }
+        }
+        return editor.commit();
+    }
+
+    private synchronized SharedPreferences prefs() {
+        if (prefs == null) {
+            prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        }
+        return prefs;
+    }
+}
@@ -0,0 +1,239 @@
+package com.rnauth0guardian;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Converts Java values into bridge maps and arrays.
+ * <p>
+ * Each value is dispatched once on its type. Nested maps, collections and object arrays are
+ * walked with an explicit stack instead of recursion, so deep payloads cannot overflow the
+ * thread stack. Primitive arrays are copied element by element without boxing. The input is
+ * never modified.
+ */
+public final class WritableConverter {
+
+    private WritableConverter() {
+    }
+
+    public static WritableMap toWritableMap(Map<?, ?> map) {
+        WritableMap writableMap = Arguments.createMap();
+        convert(new Frame(writableMap, null, map.entrySet().iterator(), null, null));
+        return writableMap;
+    }
+
+    /**
+     * Accepts an {@code Object[]}, any {@link Collection} or a primitive array.
+     */
+    public static WritableArray toWritableArray(Object values) {
+        WritableArray primitives = toPrimitiveArray(values);
+        if (primitives != null) {
+            return primitives;
+        }
+        WritableArray writableArray = Arguments.createArray();
+        convert(new Frame(null, writableArray, elements(values), null, null));
+        return writableArray;
+    }
+
+    private static void convert(Frame root) {
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (!frame.source.hasNext()) {
+                stack.pop();
+                frame.attachToParent();
+                continue;
+            }
+
+            String key = null;
+            Object value = frame.source.next();
+            if (frame.map != null) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+                key = String.valueOf(entry.getKey());
+                value = entry.getValue();
+            }
+
+            Frame child = frame.put(key, value);
+            if (child != null) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private static Iterator<?> elements(Object values) {
+        if (values instanceof Collection) {
+            return ((Collection<?>) values).iterator();
+        }
+        if (values instanceof Object[]) {
+            return Arrays.asList((Object[]) values).iterator();
+        }
+        throw new IllegalArgumentException("Not an array or collection: " + values.getClass().getName());
+    }
+
+    private static WritableArray toPrimitiveArray(Object values) {
+        WritableArray array;
+        if (values instanceof int[]) {
+            array = Arguments.createArray();
+            for (int value : (int[]) values) {
+                array.pushInt(value);
+            }
+        } else if (values instanceof long[]) {
+            array = Arguments.createArray();
+            for (long value : (long[]) values) {
+                array.pushDouble(value);
+            }
+        } else if (values instanceof double[]) {
+            array = Arguments.createArray();
+            for (double value : (double[]) values) {
+                array.pushDouble(value);
+            }
+        } else if (values instanceof float[]) {
+            array = Arguments.createArray();
+            for (float value : (float[]) values) {
+                array.pushDouble(value);
+            }
+        } else if (values instanceof boolean[]) {
+            array = Arguments.createArray();
+            for (boolean value : (boolean[]) values) {
+                array.pushBoolean(value);
+            }
+        } else if (values instanceof short[]) {
+            array = Arguments.createArray();
+            for (short value : (short[]) values) {
+                array.pushInt(value);
+            }
+        } else if (values instanceof byte[]) {
+            array = Arguments.createArray();
+            for (byte value : (byte[]) values) {
+                array.pushInt(value);
+            }
+        } else if (values instanceof char[]) {
+            array = Arguments.createArray();
+            for (char value : (char[]) values) {
+                array.pushString(String.valueOf(value));
+            }
+        } else {
+            array = null;
+        }
+        return array;
+    }
+
+    /**
+     * One map or array being filled. Exactly one of {@link #map} and {@link #array} is set.
+     */
+    private static final class Frame {
+        final WritableMap map;
+        final WritableArray array;
+        final Iterator<?> source;
+        final Frame parent;
+        final String parentKey;
+
+        Frame(WritableMap map, WritableArray array, Iterator<?> source, Frame parent, String parentKey) {
+            this.map = map;
+            this.array = array;
+            this.source = source;
+            this.parent = parent;
+            this.parentKey = parentKey;
+        }
+
+        /**
+         * Writes a leaf value, or returns the frame for a nested container.
+         */
+        Frame put(String key, Object value) {
+            if (value == null) {
+                putNull(key);
+            } else if (value instanceof String) {
+                putString(key, (String) value);
+            } else if (value instanceof Boolean) {
+                putBoolean(key, (Boolean) value);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                putInt(key, ((Number) value).intValue());
+            } else if (value instanceof Number) {
+                // Long, Float, Double and the rest all travel as doubles
+                putDouble(key, ((Number) value).doubleValue());
+            } else if (value instanceof Map) {
+                return new Frame(Arguments.createMap(), null, ((Map<?, ?>) value).entrySet().iterator(), this, key);
+            } else if (value instanceof Collection || value instanceof Object[]) {
+                return new Frame(null, Arguments.createArray(), elements(value), this, key);
+            } else if (value.getClass().isArray()) {
+                putArray(key, toPrimitiveArray(value));
+            } else {
+                // CharSequence, Character, enums and anything else
+                putString(key, value.toString());
+            }
+            return null;
+        }
+
+        void attachToParent() {
+            if (parent == null) {
+                return;
+            }
+            if (map != null) {
+                if (parent.map != null) {
+                    parent.map.putMap(parentKey, map);
+                } else {
+                    parent.array.pushMap(map);
+                }
+            } else {
+                parent.putArray(parentKey, array);
+            }
+        }
+
+        private void putNull(String key) {
+            if (map != null) {
+                map.putNull(key);
+            } else {
+                array.pushNull();
+            }
+        }
+
+        private void putString(String key, String value) {
+            if (map != null) {
+                map.putString(key, value);
+            } else {
+                array.pushString(value);
+            }
+        }
+
+        private void putBoolean(String key, boolean value) {
+            if (map != null) {
+                map.putBoolean(key, value);
+            } else {
+                array.pushBoolean(value);
+            }
+        }
+
+        private void putInt(String key, int value) {
+            if (map != null) {
+                map.putInt(key, value);
+            } else {
+                array.pushInt(value);
+            }
+        }
+
+        private void putDouble(String key, double value) {
+            if (map != null) {
+                map.putDouble(key, value);
+            } else {
+                array.pushDouble(value);
+            }
+        }
+
+        private void putArray(String key, WritableArray value) {
+            if (map != null) {
+                map.putArray(key, value);
+            } else {
+                array.pushArray(value);
+            }
+        }
+    }
+}
@@ -6,9 +6,223 @@ export function unenroll(): Promise<boolean>;
 
 export function getTOTP(): Promise<string>
 
+export interface EnrollmentInfo {
+  id: string;
+  userId: string;
+  deviceIdentifier: string;
+}
+
+// Android only
+export function getEnrollments(): Promise<EnrollmentInfo[]>
+
+// Android only
+export function getTOTPForEnrollment(enrollmentId: string): Promise<string>
+
+// Android only
+export function unenrollEnrollment(enrollmentId: string): Promise<boolean>
+
+export interface TOTPWindow {
+  previous: string;
+  current: string;
+  next: string;
+  // seconds per code
+  period: number;
+  // seconds until `current` expires
+  remainingSeconds: number;
+  // epoch millis at which `current` expires
+  expiresAt: number;
+}
+
+// Android only
+export function getTOTPWindow(): Promise<TOTPWindow>
+
+// Android only
+export function getTOTPWindowForEnrollment(enrollmentId: string): Promise<TOTPWindow>
+
+export interface TOTPEvent extends TOTPWindow {
+  enrollmentId: string;
+}
+
+// Android only. Emits a TOTPEvent named `TOTP_EVENT` at every period boundary of each
+// subscribed enrollment while the app is in the foreground, until it is unsubscribed
+export function subscribeTOTP(enrollmentId: string): void
+
+// Android only
+export function unsubscribeTOTP(enrollmentId: string): void
+
+export const TOTP_EVENT: string;
+
+export interface OutboxEvent {
+  transactionToken: string;
+  enrollmentId?: string;
+  accepted: boolean;
+  status: 'delivered' | 'expired' | 'failed';
+  error?: string;
+  // decisions still queued
+  depth: number;
+}
+
+// Android only. Emitted when a queued decision is delivered or given up on
+export const OUTBOX_EVENT: string;
+
+// Android only. Number of decisions waiting to be delivered
+export function getOutboxDepth(): Promise<number>
+
+export interface HeadlessResult {
+  transactionToken: string;
+  enrollmentId?: string;
+  accepted: boolean;
+  success: boolean;
+  error?: string;
+  code?: string;
+  // milliseconds since epoch
+  time: number;
+}
+
+// Android only. Emitted when a notification action is handled natively while JS is running
+export const HEADLESS_EVENT: string;
+
+// Android only. Decisions made from notification actions, oldest first; each is returned once
+export function consumeHeadlessResults(): Promise<HeadlessResult[]>
+
+// Android only. Synchronous, returns null when the device is not enrolled
+export function getTOTPSync(): string | null
+
+// Android only. Synchronous, maps every enrollment id to its code, or null if it is not enrolled
+export function getTOTPsSync(enrollmentIds: string[]): { [enrollmentId: string]: string | null }
+
 export function allow(notificationData: { [key:string]:string }): Promise<boolean>
 
 export function reject(notificationData: { [key:string]:string }): Promise<boolean>
+
+export interface BatchDecision {
+  notification: { [key:string]:string };
+  accept: boolean;
+  reason?: string;
+}
+
+export interface BatchResult {
+  success: boolean;
+  error?: string;
+  code?: string;
+}
+
+// Android only. Results are in the same order as the input
+export function allowMany(notifications: { [key:string]:string }[]): Promise<BatchResult[]>
+
+// Android only
+export function rejectMany(notifications: { [key:string]:string }[]): Promise<BatchResult[]>
+
+// Android only
+export function resolveBatch(decisions: BatchDecision[]): Promise<BatchResult[]>
+
+export interface ConfigureOptions {
+  keyPoolSize?: number;
+  // maximum number of requests in flight for allowMany / rejectMany / resolveBatch, default 4
+  batchParallelism?: number;
+  // connect/read/write timeout for allow and reject, default 10000
+  httpTimeoutMs?: number;
+  // idle connections kept open, default 5
+  maxIdleConnections?: number;
+  // how long an idle connection is kept open, default 300000
+  keepAliveMs?: number;
+  // threads for key generation, default 2
+  cpuThreads?: number;
+  // threads for allow / reject and batches, default 4
+  networkThreads?: number;
+  // lowest priority written to logcat, default 'info'
+  logLevel?: 'verbose' | 'debug' | 'info' | 'warn' | 'error' | 'none';
+}
+
+// Android only
+export function configure(options: ConfigureOptions): Promise<boolean>
+
+export interface KeyPoolStats {
+  capacity: number;
+  ready: number;
+  hits: number;
+  misses: number;
+}
+
+// Android only: opens a connection to the tenant ahead of allow / reject
+export function prewarm(): Promise<boolean>
+
+// Android only: same as prewarm, for the tenant the push notification came from
+export function prewarmForNotification(notificationData: { [key:string]:string }): Promise<boolean>
+
+// Android only
+export function getKeyPoolStats(): Promise<KeyPoolStats>
+
+export interface ExecutorStats {
+  threads: number;
+  active: number;
+  queued: number;
+  completed: number;
+  averageWaitMs: number;
+  maxWaitMs: number;
+}
+
+// Android only
+export function getExecutorStats(): Promise<{ cpu: ExecutorStats; storage: ExecutorStats; network: ExecutorStats }>
+
+export interface OperationMetrics {
+  count: number;
+  totalMs: number;
+  maxMs: number;
+  // estimated from the histogram buckets
+  p50Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+  // counts per bucket of bucketBoundsMs, plus a last one for anything slower
+  buckets: number[];
+  outcomes: {
+    ok: number;
+    network: number;
+    clientError: number;
+    serverError: number;
+    notEnrolled: number;
+    invalidState: number;
+    other: number;
+  };
+}
+
+export interface GuardianMetrics {
+  // upper bound of each histogram bucket
+  bucketBoundsMs: number[];
+  metrics: {
+    enroll: OperationMetrics;
+    allow: OperationMetrics;
+    reject: OperationMetrics;
+    totp: OperationMetrics;
+    unenroll: OperationMetrics;
+    parse: OperationMetrics;
+    keyLoad: OperationMetrics;
+    sign: OperationMetrics;
+    network: OperationMetrics;
+    persist: OperationMetrics;
+  };
+}
+
+// Android only
+export function getMetrics(): Promise<GuardianMetrics>
+
+// Android only
+export function resetMetrics(): Promise<boolean>
+
+export interface GuardianState {
+  status: 'UNINITIALIZED' | 'LOADING' | 'NOT_ENROLLED' | 'ENROLLED' | 'ENROLLING' | 'UNENROLLING';
+  // set while UNENROLLING
+  enrollmentId: string | null;
+}
+
+// Android only
+export function getState(): Promise<GuardianState>
+
+// Android only: loads enrollments and primes crypto and HTTP in the background once the app is idle
+export function warmUp(): Promise<boolean>
+
+// Android only: resolves once pending enrollment changes are written to disk
+export function flushStorage(): Promise<boolean>
 declare namespace Auth0Guardian {
 }
 